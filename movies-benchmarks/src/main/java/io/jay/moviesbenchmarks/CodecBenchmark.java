@@ -0,0 +1,91 @@
+package io.jay.moviesbenchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jay.moviesservice.domain.Movie;
+import io.jay.moviesservice.domain.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The wire formats the services could exchange, on the payloads of {@link JsonBenchmark}. The encoded sizes matter
+ * as much as the time; {@link CodecPayloadSizes} reports them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final TypeReference<List<Review>> REVIEW_LIST = new TypeReference<>() {
+    };
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public String format;
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Review> reviews;
+    private Movie movie;
+    private byte[] reviewsBytes;
+    private byte[] movieBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = objectMapper(format);
+        reviews = Fixtures.reviews(1L, size);
+        movie = Fixtures.movie(size, size);
+        reviewsBytes = objectMapper.writeValueAsBytes(reviews);
+        movieBytes = objectMapper.writeValueAsBytes(movie);
+    }
+
+    static ObjectMapper objectMapper(String format) {
+        switch (format) {
+            case "JSON":
+                return Jackson2ObjectMapperBuilder.json().build();
+            case "SMILE":
+                return Jackson2ObjectMapperBuilder.smile().build();
+            case "CBOR":
+                return Jackson2ObjectMapperBuilder.cbor().build();
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeReviews() throws Exception {
+        return objectMapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public List<Review> deserializeReviews() throws Exception {
+        return objectMapper.readValue(reviewsBytes, REVIEW_LIST);
+    }
+
+    @Benchmark
+    public byte[] serializeMovie() throws Exception {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public Movie deserializeMovie() throws Exception {
+        return objectMapper.readValue(movieBytes, Movie.class);
+    }
+}
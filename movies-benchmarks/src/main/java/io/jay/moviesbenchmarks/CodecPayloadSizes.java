@@ -0,0 +1,25 @@
+package io.jay.moviesbenchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Prints the encoded size of the {@link CodecBenchmark} payloads in each format, outside of the measured runs:
+ * {@code java -cp target/benchmarks.jar io.jay.moviesbenchmarks.CodecPayloadSizes}.
+ */
+public class CodecPayloadSizes {
+
+    private static final String[] FORMATS = {"JSON", "SMILE", "CBOR"};
+    private static final int[] SIZES = {10, 1000};
+
+    public static void main(String[] args) throws JsonProcessingException {
+        System.out.printf("%-6s %6s %14s %14s%n", "format", "size", "reviews bytes", "movie bytes");
+        for (var format : FORMATS) {
+            var objectMapper = CodecBenchmark.objectMapper(format);
+            for (var size : SIZES) {
+                var reviewsBytes = objectMapper.writeValueAsBytes(Fixtures.reviews(1L, size));
+                var movieBytes = objectMapper.writeValueAsBytes(Fixtures.movie(size, size));
+                System.out.printf("%-6s %6d %14d %14d%n", format, size, reviewsBytes.length, movieBytes.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.jay.moviesbenchmarks;
+
+import io.jay.moviesservice.domain.Movie;
+import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.domain.Review;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic test data, so that every run benchmarks the same payloads.
+ */
+public class Fixtures {
+
+    private static final long SEED = 42L;
+
+    public static MovieInfo movieInfo(String movieInfoId, int castSize) {
+        var cast = new ArrayList<String>(castSize);
+        for (int i = 0; i < castSize; i++) {
+            cast.add("Cast Member " + i);
+        }
+        return new MovieInfo(movieInfoId, "Batman Begins " + movieInfoId, 2005, cast, LocalDate.parse("2005-06-15"));
+    }
+
+    public static List<Review> reviews(long movieInfoId, int count) {
+        var random = new SplittableRandom(SEED + movieInfoId);
+        var reviews = new ArrayList<Review>(count);
+        for (int i = 0; i < count; i++) {
+            var rating = Math.round(random.nextDouble(0, 10) * 2) / 2.0;
+            reviews.add(new Review(movieInfoId + "-" + i, movieInfoId, "Review " + i + " of movie " + movieInfoId, rating));
+        }
+        return reviews;
+    }
+
+    public static Movie movie(int castSize, int reviewCount) {
+        return new Movie(movieInfo("1", castSize), reviews(1L, reviewCount));
+    }
+}
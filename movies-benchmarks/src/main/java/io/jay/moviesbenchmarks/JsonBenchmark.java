@@ -0,0 +1,89 @@
+package io.jay.moviesbenchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jay.moviesservice.domain.Movie;
+import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.domain.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the payloads, with the object mapper configured the way Spring Boot does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final TypeReference<List<Review>> REVIEW_LIST = new TypeReference<>() {
+    };
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private MovieInfo movieInfo;
+    private List<Review> reviews;
+    private Movie movie;
+    private byte[] movieInfoJson;
+    private byte[] reviewsJson;
+    private byte[] movieJson;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        movieInfo = Fixtures.movieInfo("1", size);
+        reviews = Fixtures.reviews(1L, size);
+        movie = Fixtures.movie(size, size);
+        movieInfoJson = objectMapper.writeValueAsBytes(movieInfo);
+        reviewsJson = objectMapper.writeValueAsBytes(reviews);
+        movieJson = objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] serializeMovieInfo() throws Exception {
+        return objectMapper.writeValueAsBytes(movieInfo);
+    }
+
+    @Benchmark
+    public MovieInfo deserializeMovieInfo() throws Exception {
+        return objectMapper.readValue(movieInfoJson, MovieInfo.class);
+    }
+
+    @Benchmark
+    public byte[] serializeReviews() throws Exception {
+        return objectMapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public List<Review> deserializeReviews() throws Exception {
+        return objectMapper.readValue(reviewsJson, REVIEW_LIST);
+    }
+
+    @Benchmark
+    public byte[] serializeMovie() throws Exception {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public Movie deserializeMovie() throws Exception {
+        return objectMapper.readValue(movieJson, Movie.class);
+    }
+}
@@ -0,0 +1,60 @@
+package io.jay.moviesbenchmarks;
+
+import io.jay.moviesservice.domain.Movie;
+import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.domain.Review;
+import io.jay.moviesservice.util.MovieAssembler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory join of bulk movie info and review lookups behind {@code POST /v1/movies/batch}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieAssemblyBenchmark {
+
+    @Param({"10", "100"})
+    public int movies;
+
+    @Param({"10", "100"})
+    public int reviewsPerMovie;
+
+    private List<String> movieIds;
+    private List<MovieInfo> movieInfos;
+    private List<Review> reviews;
+
+    @Setup
+    public void setup() {
+        movieIds = new ArrayList<>(movies);
+        movieInfos = new ArrayList<>(movies);
+        reviews = new ArrayList<>(movies * reviewsPerMovie);
+        for (int i = 1; i <= movies; i++) {
+            movieIds.add(String.valueOf(i));
+            movieInfos.add(Fixtures.movieInfo(String.valueOf(i), 3));
+            reviews.addAll(Fixtures.reviews(i, reviewsPerMovie));
+        }
+    }
+
+    @Benchmark
+    public List<Movie> assemble() {
+        return MovieAssembler.assemble(movieIds, movieInfos, reviews);
+    }
+}
@@ -0,0 +1,63 @@
+package io.jay.moviesbenchmarks;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.jay.moviesservice.exception.ReviewsServerException;
+import io.jay.moviesservice.util.RetryPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call overhead that {@link RetryPolicy} adds to a downstream call that succeeds right away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryPolicyBenchmark {
+
+    @Param({"false", "true"})
+    public boolean hedge;
+
+    private RetryPolicy retryPolicy;
+    private Mono<String> request;
+
+    @Setup
+    public void setup() {
+        retryPolicy = new RetryPolicy(new SimpleMeterRegistry(), CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(),
+                3, Duration.ofMillis(100), Duration.ofSeconds(2), 0.5, Duration.ofSeconds(3),
+                0.2, 10, 50, hedge, 0.95, Duration.ofMillis(10));
+        request = Mono.just("review");
+    }
+
+    @Benchmark
+    public String baseline() {
+        return request.block();
+    }
+
+    @Benchmark
+    public String withRetry() {
+        return retryPolicy.withRetry("reviews", request, ReviewsServerException.class).block();
+    }
+
+    @Benchmark
+    public String withHedgedRetry() {
+        return retryPolicy.withHedgedRetry("reviews", request, ReviewsServerException.class).block();
+    }
+}
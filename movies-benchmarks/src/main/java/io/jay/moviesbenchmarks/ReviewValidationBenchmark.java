@@ -0,0 +1,81 @@
+package io.jay.moviesbenchmarks;
+
+import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.exception.ReviewDataException;
+import io.jay.moviesreviewservice.validation.ReviewValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Validation cost per review: {@link ReviewValidator}'s compiled checks against going through the Bean Validation
+ * validator, joining the sorted violation messages and building an exception with a stack trace, as the review
+ * handler used to. Run with {@code -prof gc} to compare allocations too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewValidationBenchmark {
+
+    private Validator validator;
+    private ReviewValidator reviewValidator;
+    private Review validReview;
+    private Review invalidReview;
+
+    @Setup
+    public void setup() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        reviewValidator = new ReviewValidator(validator);
+        validReview = new Review(null, 1L, "Good movie", 7.5);
+        invalidReview = new Review(null, null, "Good movie", -1.0);
+    }
+
+    private RuntimeException beanValidation(Review review) {
+        var violations = validator.validate(review);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        var message = violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+        // ReviewDataException no longer fills in its stack trace, so stand in for the exception it used to be
+        return new RuntimeException(message);
+    }
+
+    @Benchmark
+    public RuntimeException validReview_beanValidation() {
+        return beanValidation(validReview);
+    }
+
+    @Benchmark
+    public ReviewDataException validReview_compiled() {
+        return reviewValidator.check(validReview);
+    }
+
+    @Benchmark
+    public RuntimeException invalidReview_beanValidation() {
+        return beanValidation(invalidReview);
+    }
+
+    @Benchmark
+    public ReviewDataException invalidReview_compiled() {
+        return reviewValidator.check(invalidReview);
+    }
+}
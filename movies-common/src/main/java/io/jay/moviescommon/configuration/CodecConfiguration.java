@@ -0,0 +1,34 @@
+package io.jay.moviescommon.configuration;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+
+/**
+ * Serves and reads {@code application/x-jackson-smile} next to JSON for callers that ask for it. Smile is binary
+ * JSON: the same documents, smaller and cheaper to parse. The Smile codecs use the object mapper settings of the
+ * JSON ones instead of Jackson's defaults, so both formats carry the same properties. It is registered as an
+ * auto-configuration, so every service depending on this module gets it.
+ */
+@Configuration
+public class CodecConfiguration {
+
+    // the encoder and decoder fall back to the JSON types when given a mapper without types
+    private static final MimeType[] SMILE_MIME_TYPES = {
+            new MimeType("application", "x-jackson-smile"),
+            new MimeType("application", "*+x-jackson-smile")};
+
+    @Bean
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        var smileMapper = builder.factory(new SmileFactory()).build();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, SMILE_MIME_TYPES));
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper, SMILE_MIME_TYPES));
+        };
+    }
+}
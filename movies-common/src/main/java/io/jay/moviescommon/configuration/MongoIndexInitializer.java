@@ -0,0 +1,152 @@
+package io.jay.moviescommon.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Creates the indexes declared on the documents at startup and checks that every hot-path query is planned
+ * on an index. {@code mongo.indexes.mode} is {@code CREATE}, {@code VERIFY} (only run the checks) or {@code OFF};
+ * {@code CREATE} also versions the documents written before they had a version.
+ * <p>
+ * Each service declares its own, with its documents and hot-path queries.
+ */
+@Log4j2
+public class MongoIndexInitializer implements SmartInitializingSingleton {
+
+    private final ReactiveMongoTemplate template;
+    private final MongoMappingContext mappingContext;
+    private final List<Class<?>> documents;
+    private final List<HotPathQuery> hotPathQueries;
+    private final Mode mode;
+    private final boolean failOnMissing;
+    private final Duration timeout;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate template,
+                                 MongoMappingContext mappingContext,
+                                 List<Class<?>> documents,
+                                 List<HotPathQuery> hotPathQueries,
+                                 Mode mode,
+                                 boolean failOnMissing,
+                                 Duration timeout) {
+        this.template = template;
+        this.mappingContext = mappingContext;
+        this.documents = documents;
+        this.hotPathQueries = hotPathQueries;
+        this.mode = mode;
+        this.failOnMissing = failOnMissing;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        // startup is not on an event loop, so it is fine to wait for Mongo here
+        if (mode == Mode.CREATE) {
+            createIndexes().then(backfillVersions()).block(timeout);
+        }
+        var unindexed = Flux.fromIterable(hotPathQueries)
+                .filterWhen(query -> usesIndex(query).map(usesIndex -> !usesIndex))
+                .map(HotPathQuery::getName)
+                .collectList()
+                .block(timeout);
+        if (unindexed == null || unindexed.isEmpty()) {
+            return;
+        }
+        var message = "Hot-path queries without an index: " + String.join(", ", unindexed);
+        if (failOnMissing) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    public Mono<Void> createIndexes() {
+        var resolver = IndexResolver.create(mappingContext);
+        return Flux.fromIterable(documents)
+                .concatMap(document -> Flux.fromIterable(resolver.resolveIndexFor(document))
+                        .concatMap(index -> template.indexOps(document).ensureIndex(index)))
+                .doOnNext(name -> log.info("Ensured index {}", name))
+                .then();
+    }
+
+    /**
+     * Sets version 0 on documents without one, so that saving them updates them instead of inserting a duplicate.
+     */
+    public Mono<Void> backfillVersions() {
+        return Flux.fromIterable(documents)
+                .map(mappingContext::getRequiredPersistentEntity)
+                .filter(entity -> entity.hasVersionProperty())
+                .concatMap(entity -> {
+                    var version = entity.getRequiredVersionProperty().getFieldName();
+                    return template.updateMulti(Query.query(where(version).exists(false)), Update.update(version, 0L),
+                                    entity.getType())
+                            .filter(result -> result.getModifiedCount() > 0)
+                            .doOnNext(result -> log.info("Versioned {} {} documents", result.getModifiedCount(),
+                                    entity.getType().getSimpleName()));
+                })
+                .then();
+    }
+
+    /**
+     * Asks Mongo for the winning plan of {@code query} and checks that it doesn't scan the whole collection.
+     */
+    public Mono<Boolean> usesIndex(HotPathQuery query) {
+        return template.getCollection(template.getCollectionName(query.getDocument()))
+                .flatMap(collection -> Mono.from(collection.find(query.getFilter())
+                        .sort(query.getSort())
+                        .explain()))
+                .map(explain -> {
+                    var stages = new ArrayList<String>();
+                    var queryPlanner = explain.get("queryPlanner", Document.class);
+                    collectStages(queryPlanner.get("winningPlan"), stages);
+                    return !stages.isEmpty() && !stages.contains("COLLSCAN");
+                });
+    }
+
+    // the plan shape differs between server versions, so every nested "stage" counts
+    private static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document) {
+            var document = (Document) node;
+            if (document.get("stage") instanceof String) {
+                stages.add(document.getString("stage"));
+            }
+            document.values().forEach(value -> collectStages(value, stages));
+        } else if (node instanceof Collection) {
+            ((Collection<?>) node).forEach(value -> collectStages(value, stages));
+        }
+    }
+
+    public enum Mode {
+        CREATE,
+        VERIFY,
+        OFF
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class HotPathQuery {
+
+        private String name;
+        private Class<?> document;
+        private Document filter;
+        private Document sort;
+    }
+}
@@ -0,0 +1,91 @@
+package io.jay.moviescommon.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Times every call to the Mongo repositories as {@code metricName}, tagged with the repository, the method and
+ * the outcome. The timer runs from subscription to the terminal signal, so it covers the query rather than the
+ * assembly of the publisher, which is all Spring Data's own invocation metrics see.
+ * <p>
+ * Register it from a {@code static} bean method, as post processors are created before the other beans.
+ */
+@RequiredArgsConstructor
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    private final String metricName;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+                        // slices without metrics, such as @DataMongoTest, have no registry
+                        var registry = meterRegistry.getIfAvailable();
+                        if (registry != null) {
+                            proxyFactory.addAdvice(new TimingInterceptor(registry, metricName,
+                                    repositoryInformation.getRepositoryInterface().getSimpleName()));
+                        }
+                    }));
+        }
+        return bean;
+    }
+
+    @RequiredArgsConstructor
+    static class TimingInterceptor implements MethodInterceptor {
+
+        private final MeterRegistry meterRegistry;
+        private final String metricName;
+        private final String repository;
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            var result = invocation.proceed();
+            var method = invocation.getMethod().getName();
+            if (result instanceof Mono) {
+                var mono = (Mono<?>) result;
+                return Mono.defer(() -> {
+                    var stop = stop(method);
+                    return mono
+                            .doOnSuccess(value -> stop.accept("success"))
+                            .doOnError(ex -> stop.accept("error"))
+                            .doOnCancel(() -> stop.accept("cancelled"));
+                });
+            }
+            if (result instanceof Flux) {
+                var flux = (Flux<?>) result;
+                return Flux.defer(() -> {
+                    var stop = stop(method);
+                    return flux
+                            .doOnComplete(() -> stop.accept("success"))
+                            .doOnError(ex -> stop.accept("error"))
+                            .doOnCancel(() -> stop.accept("cancelled"));
+                });
+            }
+            return result;
+        }
+
+        private Consumer<String> stop(String method) {
+            var sample = Timer.start(meterRegistry);
+            var stopped = new AtomicBoolean();
+            return outcome -> {
+                if (stopped.compareAndSet(false, true)) {
+                    sample.stop(meterRegistry.timer(metricName,
+                            "repository", repository, "method", method, "outcome", outcome));
+                }
+            };
+        }
+    }
+}
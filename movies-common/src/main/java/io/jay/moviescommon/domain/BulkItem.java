@@ -0,0 +1,39 @@
+package io.jay.moviescommon.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.Value;
+import reactor.core.publisher.Flux;
+
+/**
+ * One item of a bulk upload: its zero-based position and either the item or why its line couldn't be read.
+ */
+@Value
+public class BulkItem<T> {
+
+    long index;
+    T value;
+    // null when the line was read
+    String error;
+
+    /**
+     * Reads a newline delimited JSON upload one line at a time, so a malformed line fails that item rather than
+     * the whole upload. Blank lines, e.g. a trailing newline, are not items.
+     *
+     * @param lines the lines of the upload, as split by the String decoder
+     */
+    public static <T> Flux<BulkItem<T>> fromNdjson(Flux<String> lines, ObjectReader reader) {
+        return lines
+                .filter(line -> !line.isBlank())
+                .index((index, line) -> {
+                    try {
+                        T value = reader.readValue(line);
+                        return value == null
+                                ? new BulkItem<>(index, null, "Malformed JSON: expected an object")
+                                : new BulkItem<>(index, value, null);
+                    } catch (JsonProcessingException ex) {
+                        return new BulkItem<>(index, null, "Malformed JSON: " + ex.getOriginalMessage());
+                    }
+                });
+    }
+}
@@ -0,0 +1,56 @@
+package io.jay.moviescommon.domain;
+
+import io.jay.moviescommon.exception.InvalidFieldsException;
+import lombok.Value;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The properties a caller asked for with {@code fields=}, e.g. {@code name,year}. They are projected in the Mongo
+ * query, so the other properties are neither read nor sent; the id and version are always included.
+ */
+@Value
+public class Fields {
+
+    public static final Fields ALL = new Fields(Set.of());
+
+    // empty for all properties
+    Set<String> names;
+
+    /**
+     * @param fields  comma separated property names, or {@code null} for all properties
+     * @param allowed the properties that may be asked for
+     */
+    public static Fields parse(String fields, Set<String> allowed) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        var names = new HashSet<String>();
+        for (var name : fields.split(",")) {
+            var trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(trimmed)) {
+                throw new InvalidFieldsException("Unknown field " + trimmed + ", expected any of " + new TreeSet<>(allowed));
+            }
+            names.add(trimmed);
+        }
+        return names.isEmpty() ? ALL : new Fields(Set.copyOf(names));
+    }
+
+    public boolean isAll() {
+        return names.isEmpty();
+    }
+
+    public Query applyTo(Query query) {
+        if (!names.isEmpty()) {
+            names.forEach(query.fields()::include);
+            query.fields().include("version");
+        }
+        return query;
+    }
+}
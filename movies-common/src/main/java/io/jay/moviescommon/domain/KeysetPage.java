@@ -0,0 +1,20 @@
+package io.jay.moviescommon.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a listing sorted by {@code _id}. {@code nextCursor} is the {@code after} value of the next page,
+ * or {@code null} on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+}
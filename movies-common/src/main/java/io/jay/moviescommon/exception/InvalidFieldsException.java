@@ -0,0 +1,8 @@
+package io.jay.moviescommon.exception;
+
+public class InvalidFieldsException extends RuntimeException {
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
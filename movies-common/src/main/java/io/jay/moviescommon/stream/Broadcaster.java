@@ -0,0 +1,263 @@
+package io.jay.moviescommon.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans one stream of events out to many SSE subscribers.
+ * <p>
+ * Emissions are serialized, so any number of request threads may call {@link #emit}. Every event gets the next
+ * id, or one assigned by the source of the events, see {@link #emit(Object, long)}. The last {@code replayCapacity} events are kept, so a client that reconnects with the id of the last
+ * event it saw receives what it missed; a new subscriber starts from the latest event. Each subscriber has its
+ * own buffer of {@code bufferSize} events; when a subscriber can't keep up, its {@link OverflowPolicy} decides
+ * what happens without slowing down the others. Idle connections get a heartbeat comment so proxies don't close
+ * them.
+ */
+@Log4j2
+public class Broadcaster<T> {
+
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    /**
+     * Type of the events announcing that a document is gone; their data only carries its id.
+     */
+    public static final String DELETE_EVENT = "delete";
+
+    private final Sinks.Many<Entry<T>> sink;
+    private final Set<AtomicInteger> subscriberLags = ConcurrentHashMap.newKeySet();
+    private final Flux<ServerSentEvent<T>> heartbeats;
+    private final int bufferSize;
+    private final int replayCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Counter emitted;
+    private final Counter emitFailed;
+    private final Counter dropped;
+    private final Counter disconnected;
+    private final Counter resumed;
+    private final Counter resumeGaps;
+    private final Counter duplicates;
+    // ids of the events still held by the sink, oldest first from retainedNext once the ring is full
+    private final long[] retainedIds;
+    private int retainedNext;
+    private int retainedCount;
+    private long lastEvictedId;
+    private long lastId;
+
+    public Broadcaster(String name, MeterRegistry meterRegistry, int bufferSize, OverflowPolicy overflowPolicy,
+                       Duration heartbeatInterval, int replayCapacity) {
+        this.sink = Sinks.many().replay().limit(replayCapacity);
+        this.bufferSize = bufferSize;
+        this.replayCapacity = replayCapacity;
+        this.retainedIds = new long[replayCapacity];
+        this.overflowPolicy = overflowPolicy;
+        // one timer for all subscribers; a subscriber that isn't reading simply misses heartbeats
+        this.heartbeats = Flux.interval(heartbeatInterval)
+                .map(tick -> ServerSentEvent.<T>builder().comment("heartbeat").build())
+                .share();
+        this.emitted = meterRegistry.counter(name + ".broadcast.emitted");
+        this.emitFailed = meterRegistry.counter(name + ".broadcast.emit.failed");
+        this.dropped = meterRegistry.counter(name + ".broadcast.dropped", "policy", overflowPolicy.name());
+        this.disconnected = meterRegistry.counter(name + ".broadcast.disconnected", "policy", overflowPolicy.name());
+        this.resumed = meterRegistry.counter(name + ".broadcast.resumed");
+        this.resumeGaps = meterRegistry.counter(name + ".broadcast.resume.gaps");
+        this.duplicates = meterRegistry.counter(name + ".broadcast.duplicates");
+        Gauge.builder(name + ".broadcast.subscribers", subscriberLags, Set::size)
+                .register(meterRegistry);
+        Gauge.builder(name + ".broadcast.lag.max", this, Broadcaster::maxLag)
+                .description("events buffered for the slowest subscriber")
+                .register(meterRegistry);
+        Gauge.builder(name + ".broadcast.lag.total", this, Broadcaster::totalLag)
+                .description("events buffered across all subscribers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes {@code event} to every current subscriber.
+     */
+    public synchronized void emit(T event) {
+        emit(null, event, lastId + 1);
+    }
+
+    /**
+     * Publishes {@code event} as an SSE event of {@code type}, e.g. {@link #DELETE_EVENT}, which clients tell apart
+     * from the untyped events.
+     */
+    public synchronized void emit(String type, T event) {
+        emit(type, event, lastId + 1);
+    }
+
+    /**
+     * Publishes {@code event} under an id assigned by its source, e.g. the cluster time of a change stream event,
+     * so that every replica hands out the same id for it. Ids must increase; an event whose id isn't above the
+     * last one has been seen already and is skipped.
+     *
+     * @return whether the event was published
+     */
+    public synchronized boolean emit(T event, long id) {
+        return emit(null, event, id);
+    }
+
+    /**
+     * Same as {@link #emit(Object, long)}, as an SSE event of {@code type}.
+     */
+    public synchronized boolean emit(String type, T event, long id) {
+        if (id <= lastId) {
+            duplicates.increment();
+            return false;
+        }
+        var result = sink.tryEmitNext(new Entry<>(id, type, event));
+        if (result.isFailure()) {
+            emitFailed.increment();
+            log.warn("Dropped event for all subscribers: {}", result);
+            return false;
+        }
+        retain(id);
+        lastId = id;
+        emitted.increment();
+        return true;
+    }
+
+    private void retain(long id) {
+        if (retainedCount == retainedIds.length) {
+            lastEvictedId = retainedIds[retainedNext];
+        } else {
+            retainedCount++;
+        }
+        retainedIds[retainedNext] = id;
+        retainedNext = (retainedNext + 1) % retainedIds.length;
+    }
+
+    /**
+     * Events with their ids, without heartbeats.
+     *
+     * @param lastEventId id of the last event the client received, or {@code null} to start from the latest event
+     */
+    public Flux<ServerSentEvent<T>> events(String lastEventId) {
+        return Flux.defer(() -> {
+            long firstId;
+            int backlog;
+            synchronized (this) {
+                firstId = firstIdAfter(lastEventId);
+                backlog = retainedFrom(firstId);
+            }
+            var lag = new AtomicInteger();
+            return sink.asFlux()
+                    .filter(entry -> entry.getId() >= firstId)
+                    .map(entry -> ServerSentEvent.builder(entry.getData())
+                            .id(String.valueOf(entry.getId()))
+                            .event(entry.getType())
+                            .build())
+                    .doOnNext(event -> lag.incrementAndGet())
+                    // room for the replayed backlog on top of the live buffer
+                    .onBackpressureBuffer(bufferSize + backlog, event -> {
+                        lag.decrementAndGet();
+                        dropped.increment();
+                    }, overflowPolicy.strategy)
+                    .doOnNext(event -> lag.decrementAndGet())
+                    .onErrorResume(Exceptions::isOverflow, ex -> {
+                        disconnected.increment();
+                        return Flux.empty();
+                    })
+                    .doOnSubscribe(subscription -> subscriberLags.add(lag))
+                    .doFinally(signal -> subscriberLags.remove(lag));
+        });
+    }
+
+    /**
+     * Same as {@link #events}, interleaved with heartbeat comments.
+     */
+    public Flux<ServerSentEvent<T>> serverSentEvents(String lastEventId) {
+        return Flux.defer(() -> {
+            // heartbeats never complete on their own, so they are stopped when the events end, e.g. on a disconnect
+            var eventsDone = Sinks.empty();
+            return events(lastEventId)
+                    .doFinally(signal -> eventsDone.tryEmitEmpty())
+                    .mergeWith(heartbeats.onBackpressureDrop().takeUntilOther(eventsDone.asMono()));
+        });
+    }
+
+    private long firstIdAfter(String lastEventId) {
+        var requested = parseId(lastEventId);
+        if (requested == null || requested > lastId) {
+            // no id, or one handed out before a restart: start from the latest event like a new subscriber
+            return Math.max(lastId, 1);
+        }
+        resumed.increment();
+        if (requested < lastEvictedId) {
+            resumeGaps.increment();
+        }
+        return requested + 1;
+    }
+
+    private int retainedFrom(long firstId) {
+        var count = 0;
+        for (int i = 0; i < retainedCount; i++) {
+            if (retainedIds[i] >= firstId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Long parseId(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(id.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private int maxLag() {
+        return subscriberLags.stream().mapToInt(AtomicInteger::get).max().orElse(0);
+    }
+
+    private int totalLag() {
+        return subscriberLags.stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Value
+    private static class Entry<T> {
+        long id;
+        // null for untyped events
+        String type;
+        T data;
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Discard the subscriber's oldest buffered event to make room.
+         */
+        DROP_OLDEST(BufferOverflowStrategy.DROP_OLDEST),
+        /**
+         * Discard the event that didn't fit.
+         */
+        DROP_LATEST(BufferOverflowStrategy.DROP_LATEST),
+        /**
+         * End the subscriber's stream; the client reconnects with its last event id and catches up from the
+         * replay buffer.
+         */
+        DISCONNECT(BufferOverflowStrategy.ERROR);
+
+        private final BufferOverflowStrategy strategy;
+
+        OverflowPolicy(BufferOverflowStrategy strategy) {
+            this.strategy = strategy;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.jay.moviescommon.stream;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.extern.log4j.Log4j2;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Feeds a {@link Broadcaster} from a MongoDB change stream on the collection of {@code type}.
+ * <p>
+ * Every event is published under its cluster time, so all replicas agree on the event ids and a client can resume
+ * with {@code Last-Event-ID} on any of them. The resume token of the last published event is saved every
+ * {@code tokenSaveInterval} and on shutdown; a restarted replica continues from the saved token, and a stream that
+ * fails continues from the last event it published. When the saved token has fallen off the oplog, the feed starts
+ * over from the current time.
+ * <p>
+ * A {@code delete} event has no document, so it is published as a {@link Broadcaster#DELETE_EVENT} whose data is
+ * the tombstone built from the id of the deleted document.
+ */
+@Log4j2
+public class ChangeStreamFeed<T> implements SmartLifecycle {
+
+    // ChangeStreamFatalError, ChangeStreamHistoryLost
+    private static final Set<Integer> HISTORY_LOST_CODES = Set.of(280, 286);
+
+    private final String name;
+    private final ReactiveMongoTemplate template;
+    private final Class<T> type;
+    private final List<String> operationTypes;
+    private final Broadcaster<T> broadcaster;
+    private final Function<BsonValue, T> tombstone;
+    private final Duration tokenSaveInterval;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final AtomicReference<BsonValue> lastToken = new AtomicReference<>();
+    private volatile BsonValue savedToken;
+    private volatile Disposable subscription;
+    private volatile Disposable tokenSaver;
+
+    /**
+     * @param name           key of the saved resume token, replicas serving the same stream share it
+     * @param operationTypes change stream operation types to publish, e.g. {@code insert}
+     */
+    public ChangeStreamFeed(String name, ReactiveMongoTemplate template, Class<T> type, List<String> operationTypes,
+                            Broadcaster<T> broadcaster, Duration tokenSaveInterval,
+                            Duration minBackoff, Duration maxBackoff) {
+        this(name, template, type, operationTypes, broadcaster, null, tokenSaveInterval, minBackoff, maxBackoff);
+    }
+
+    /**
+     * @param tombstone builds the data of a delete event from the {@code _id} of the deleted document, needed
+     *                  when {@code operationTypes} include {@code delete}
+     */
+    public ChangeStreamFeed(String name, ReactiveMongoTemplate template, Class<T> type, List<String> operationTypes,
+                            Broadcaster<T> broadcaster, Function<BsonValue, T> tombstone, Duration tokenSaveInterval,
+                            Duration minBackoff, Duration maxBackoff) {
+        if (operationTypes.contains("delete") && tombstone == null) {
+            throw new IllegalArgumentException("delete events need a tombstone");
+        }
+        this.name = name;
+        this.template = template;
+        this.type = type;
+        this.operationTypes = operationTypes;
+        this.broadcaster = broadcaster;
+        this.tombstone = tombstone;
+        this.tokenSaveInterval = tokenSaveInterval;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Override
+    public void start() {
+        // startup is not on an event loop, so it is fine to wait for Mongo here
+        var stored = template.findById(name, StreamResumeToken.class)
+                .block(Duration.ofSeconds(30));
+        if (stored != null) {
+            savedToken = BsonDocument.parse(stored.getToken());
+            lastToken.set(savedToken);
+            log.info("Resuming change stream {} from token saved at {}", name, stored.getUpdatedAt());
+        }
+        subscription = Flux.defer(() -> watch(lastToken.get()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .doBeforeRetry(retrySignal -> log.warn("Change stream {} failed, resuming: {}",
+                                name, retrySignal.failure().toString())))
+                .subscribe(this::publish);
+        tokenSaver = Flux.interval(tokenSaveInterval)
+                .concatMap(tick -> saveToken())
+                .subscribe();
+    }
+
+    private Flux<ChangeStreamEvent<T>> watch(BsonValue resumeToken) {
+        var changeStream = template.changeStream(type)
+                .watchCollection(type)
+                .filter(Criteria.where("operationType").in(operationTypes));
+        if (resumeToken == null) {
+            return changeStream.listen();
+        }
+        return changeStream.resumeAfter(resumeToken)
+                .listen()
+                .onErrorResume(ChangeStreamFeed::isHistoryLost, ex -> {
+                    log.error("Change stream {} can't resume, events since the last token are lost: {}",
+                            name, ex.toString());
+                    lastToken.set(null);
+                    return watch(null);
+                });
+    }
+
+    private void publish(ChangeStreamEvent<T> event) {
+        var clusterTime = event.getBsonTimestamp();
+        if (clusterTime != null) {
+            if (event.getOperationType() == OperationType.DELETE) {
+                var documentKey = event.getRaw() == null ? null : event.getRaw().getDocumentKey();
+                if (documentKey != null) {
+                    broadcaster.emit(Broadcaster.DELETE_EVENT, tombstone.apply(documentKey.get("_id")),
+                            clusterTime.getValue());
+                }
+            } else if (event.getBody() != null) {
+                broadcaster.emit(event.getBody(), clusterTime.getValue());
+            }
+        }
+        lastToken.set(event.getResumeToken());
+    }
+
+    private Mono<Void> saveToken() {
+        return Mono.defer(() -> {
+            var token = lastToken.get();
+            if (token == null || token.equals(savedToken)) {
+                return Mono.empty();
+            }
+            return template.save(new StreamResumeToken(name, token.asDocument().toJson(), Instant.now()))
+                    .doOnNext(saved -> savedToken = token)
+                    .then();
+        }).onErrorResume(ex -> {
+            log.warn("Could not save resume token of change stream {}: {}", name, ex.toString());
+            return Mono.empty();
+        });
+    }
+
+    private static boolean isHistoryLost(Throwable ex) {
+        for (var cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException && HISTORY_LOST_CODES.contains(((MongoException) cause).getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void stop() {
+        subscription.dispose();
+        tokenSaver.dispose();
+        saveToken().block(Duration.ofSeconds(5));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+}
@@ -0,0 +1,16 @@
+package io.jay.moviescommon.stream;
+
+/**
+ * Where the events of a {@link Broadcaster} come from.
+ */
+public enum EventSource {
+    /**
+     * Events are emitted by the request that made the change, so a subscriber only sees changes made through
+     * the replica it is connected to.
+     */
+    LOCAL,
+    /**
+     * Events are read from a MongoDB change stream, so every replica sees every change. Needs a replica set.
+     */
+    CHANGE_STREAM
+}
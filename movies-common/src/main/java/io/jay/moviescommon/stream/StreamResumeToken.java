@@ -0,0 +1,27 @@
+package io.jay.moviescommon.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * The position of a {@link ChangeStreamFeed}, so a restarted replica resumes where it stopped.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("streamResumeTokens")
+public class StreamResumeToken {
+
+    @Id
+    private String feed;
+
+    // the server's resume token as extended JSON, its shape differs between server versions
+    private String token;
+
+    private Instant updatedAt;
+}
@@ -0,0 +1,72 @@
+package io.jay.moviescommon.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class RepositoryMetricsPostProcessorTests {
+
+    interface Lookups {
+
+        Mono<String> findOne(boolean fail);
+
+        Flux<String> findAll();
+    }
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Lookups timed() {
+        Lookups target = new Lookups() {
+            @Override
+            public Mono<String> findOne(boolean fail) {
+                return fail ? Mono.error(new IllegalStateException()) : Mono.just("one");
+            }
+
+            @Override
+            public Flux<String> findAll() {
+                return Flux.just("one", "two");
+            }
+        };
+        var proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new RepositoryMetricsPostProcessor.TimingInterceptor(meterRegistry, "test.repository", "Lookups"));
+        return (Lookups) proxyFactory.getProxy();
+    }
+
+    private long count(String method, String outcome) {
+        var timer = meterRegistry.find("test.repository")
+                .tags("repository", "Lookups", "method", method, "outcome", outcome)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void timesSubscriptionsNotCalls() {
+        var lookups = timed();
+
+        var one = lookups.findOne(false);
+        assertThat(count("findOne", "success"), equalTo(0L));
+        StepVerifier.create(one).expectNext("one").verifyComplete();
+        StepVerifier.create(one).expectNext("one").verifyComplete();
+
+        assertThat(count("findOne", "success"), equalTo(2L));
+    }
+
+    @Test
+    void tagsOutcomes() {
+        var lookups = timed();
+
+        StepVerifier.create(lookups.findOne(true)).verifyError(IllegalStateException.class);
+        StepVerifier.create(lookups.findAll()).expectNext("one", "two").verifyComplete();
+        StepVerifier.create(lookups.findAll()).expectNext("one").thenCancel().verify();
+
+        assertThat(count("findOne", "error"), equalTo(1L));
+        assertThat(count("findAll", "success"), equalTo(1L));
+        assertThat(count("findAll", "cancelled"), equalTo(1L));
+    }
+}
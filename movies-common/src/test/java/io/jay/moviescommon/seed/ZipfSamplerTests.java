@@ -0,0 +1,41 @@
+package io.jay.moviescommon.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ZipfSamplerTests {
+
+    @Test
+    void samplesFollowZipfDistribution() {
+        var sampler = new ZipfSampler(1000, 1.0);
+        var random = new SplittableRandom(42);
+        var counts = new int[1001];
+        var samples = 200_000;
+        for (int i = 0; i < samples; i++) {
+            counts[sampler.sample(random)]++;
+        }
+
+        // P(1) = 1 / H(1000) ~ 0.1336, P(2) = P(1) / 2
+        assertThat(counts[0], equalTo(0));
+        assertThat(counts[1] / (double) samples, closeTo(0.1336, 0.005));
+        assertThat(counts[1] / (double) counts[2], closeTo(2.0, 0.1));
+        assertThat(counts[1000], is(greaterThan(0)));
+    }
+
+    @Test
+    void sameSeedGivesSameSamples() {
+        var sampler = new ZipfSampler(1_000_000, 1.2);
+        var first = new SplittableRandom(7);
+        var second = new SplittableRandom(7);
+
+        for (int i = 0; i < 1000; i++) {
+            var sample = sampler.sample(first);
+            assertThat(sample, allOf(greaterThanOrEqualTo(1), lessThanOrEqualTo(1_000_000)));
+            assertThat(sampler.sample(second), equalTo(sample));
+        }
+    }
+}
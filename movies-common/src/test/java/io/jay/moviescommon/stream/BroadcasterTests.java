@@ -0,0 +1,241 @@
+package io.jay.moviescommon.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+class BroadcasterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Broadcaster<Integer> broadcaster(int bufferSize, Broadcaster.OverflowPolicy overflowPolicy) {
+        return new Broadcaster<>("test", meterRegistry, bufferSize, overflowPolicy, Duration.ofHours(1), 16);
+    }
+
+    private static Flux<Integer> data(Broadcaster<Integer> broadcaster, String lastEventId) {
+        return broadcaster.events(lastEventId).map(ServerSentEvent::data);
+    }
+
+    @Test
+    void newSubscriberReceivesLatestEventThenLiveOnes() {
+        var broadcaster = broadcaster(16, Broadcaster.OverflowPolicy.DROP_OLDEST);
+        broadcaster.emit(1);
+        broadcaster.emit(2);
+
+        StepVerifier.create(data(broadcaster, null))
+                .expectNext(2)
+                .then(() -> broadcaster.emit(3))
+                .expectNext(3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void eventsCarryIncreasingIds() {
+        var broadcaster = broadcaster(16, Broadcaster.OverflowPolicy.DROP_OLDEST);
+
+        StepVerifier.create(broadcaster.events(null).map(ServerSentEvent::id))
+                .then(() -> IntStream.rangeClosed(1, 3).forEach(broadcaster::emit))
+                .expectNext("1", "2", "3")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void typedEventsCarryTheirType() {
+        var broadcaster = broadcaster(16, Broadcaster.OverflowPolicy.DROP_OLDEST);
+
+        StepVerifier.create(broadcaster.events(null))
+                .then(() -> {
+                    broadcaster.emit(1);
+                    broadcaster.emit(Broadcaster.DELETE_EVENT, 1);
+                })
+                .assertNext(event -> assertThat(event.event(), nullValue()))
+                .assertNext(event -> {
+                    assertThat(event.event(), equalTo(Broadcaster.DELETE_EVENT));
+                    assertThat(event.data(), equalTo(1));
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void resumesAfterLastEventId() {
+        var broadcaster = broadcaster(16, Broadcaster.OverflowPolicy.DROP_OLDEST);
+        IntStream.rangeClosed(1, 5).forEach(broadcaster::emit);
+
+        StepVerifier.create(data(broadcaster, "2"))
+                .expectNext(3, 4, 5)
+                .then(() -> broadcaster.emit(6))
+                .expectNext(6)
+                .thenCancel()
+                .verify();
+
+        assertThat(meterRegistry.counter("test.broadcast.resumed").count(), equalTo(1.0));
+    }
+
+    @Test
+    void resumeOlderThanReplayBufferStartsAtOldestRetainedEvent() {
+        var broadcaster = new Broadcaster<Integer>("test", meterRegistry, 16, Broadcaster.OverflowPolicy.DROP_OLDEST,
+                Duration.ofHours(1), 3);
+        IntStream.rangeClosed(1, 6).forEach(broadcaster::emit);
+
+        StepVerifier.create(data(broadcaster, "1"))
+                .expectNext(4, 5, 6)
+                .thenCancel()
+                .verify();
+
+        assertThat(meterRegistry.counter("test.broadcast.resume.gaps").count(), equalTo(1.0));
+    }
+
+    @Test
+    void unknownLastEventIdStartsFromLatestEvent() {
+        var broadcaster = broadcaster(16, Broadcaster.OverflowPolicy.DROP_OLDEST);
+        IntStream.rangeClosed(1, 3).forEach(broadcaster::emit);
+
+        StepVerifier.create(data(broadcaster, "999"))
+                .expectNext(3)
+                .thenCancel()
+                .verify();
+        StepVerifier.create(data(broadcaster, "not-an-id"))
+                .expectNext(3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void sourceAssignedIdsAreKeptAndDuplicatesSkipped() {
+        var broadcaster = broadcaster(16, Broadcaster.OverflowPolicy.DROP_OLDEST);
+
+        StepVerifier.create(broadcaster.events(null).map(ServerSentEvent::id))
+                .then(() -> {
+                    assertThat(broadcaster.emit(1, 100), equalTo(true));
+                    assertThat(broadcaster.emit(1, 100), equalTo(false));
+                    assertThat(broadcaster.emit(2, 250), equalTo(true));
+                    assertThat(broadcaster.emit(0, 50), equalTo(false));
+                })
+                .expectNext("100", "250")
+                .thenCancel()
+                .verify();
+
+        assertThat(meterRegistry.counter("test.broadcast.duplicates").count(), equalTo(2.0));
+    }
+
+    @Test
+    void resumesBetweenSparseIds() {
+        var broadcaster = new Broadcaster<Integer>("test", meterRegistry, 16, Broadcaster.OverflowPolicy.DROP_OLDEST,
+                Duration.ofHours(1), 3);
+        IntStream.rangeClosed(1, 5).forEach(i -> broadcaster.emit(i, i * 100L));
+
+        StepVerifier.create(data(broadcaster, "350"))
+                .expectNext(4, 5)
+                .thenCancel()
+                .verify();
+        assertThat(meterRegistry.counter("test.broadcast.resume.gaps").count(), equalTo(0.0));
+
+        StepVerifier.create(data(broadcaster, "150"))
+                .expectNext(3, 4, 5)
+                .thenCancel()
+                .verify();
+        assertThat(meterRegistry.counter("test.broadcast.resume.gaps").count(), equalTo(1.0));
+    }
+
+    @Test
+    void concurrentEmitsAreNotLost() {
+        var broadcaster = broadcaster(10_000, Broadcaster.OverflowPolicy.DROP_OLDEST);
+        var received = data(broadcaster, null).take(2000).count().toFuture();
+
+        Flux.range(0, 2000)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .doOnNext(broadcaster::emit)
+                .sequential()
+                .blockLast();
+
+        assertThat(received.join(), equalTo(2000L));
+        assertThat(meterRegistry.counter("test.broadcast.emit.failed").count(), equalTo(0.0));
+    }
+
+    @Test
+    void slowSubscriberDropsOldestEvents() {
+        var broadcaster = broadcaster(2, Broadcaster.OverflowPolicy.DROP_OLDEST);
+
+        StepVerifier.create(data(broadcaster, null), 0)
+                .then(() -> IntStream.rangeClosed(1, 5).forEach(broadcaster::emit))
+                .thenRequest(2)
+                .expectNext(4, 5)
+                .thenCancel()
+                .verify();
+
+        assertThat(meterRegistry.counter("test.broadcast.dropped", "policy", "DROP_OLDEST").count(), equalTo(3.0));
+    }
+
+    @Test
+    void slowSubscriberDropsLatestEvents() {
+        var broadcaster = broadcaster(2, Broadcaster.OverflowPolicy.DROP_LATEST);
+
+        StepVerifier.create(data(broadcaster, null), 0)
+                .then(() -> IntStream.rangeClosed(1, 5).forEach(broadcaster::emit))
+                .thenRequest(2)
+                .expectNext(1, 2)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void slowSubscriberIsDisconnected() {
+        var broadcaster = broadcaster(2, Broadcaster.OverflowPolicy.DISCONNECT);
+        var fastSubscriber = data(broadcaster, null).take(5).collectList().toFuture();
+
+        StepVerifier.create(data(broadcaster, null), 0)
+                .then(() -> IntStream.rangeClosed(1, 5).forEach(broadcaster::emit))
+                .thenRequest(2)
+                .expectNext(1, 2)
+                .verifyComplete();
+
+        assertThat(fastSubscriber.join().size(), equalTo(5));
+        assertThat(meterRegistry.counter("test.broadcast.disconnected", "policy", "DISCONNECT").count(), equalTo(1.0));
+    }
+
+    @Test
+    void lagGaugesTrackBufferedEvents() {
+        var broadcaster = broadcaster(16, Broadcaster.OverflowPolicy.DROP_OLDEST);
+
+        StepVerifier.create(data(broadcaster, null), 0)
+                .then(() -> IntStream.rangeClosed(1, 3).forEach(broadcaster::emit))
+                .then(() -> {
+                    assertThat(meterRegistry.get("test.broadcast.subscribers").gauge().value(), equalTo(1.0));
+                    assertThat(meterRegistry.get("test.broadcast.lag.max").gauge().value(), equalTo(3.0));
+                })
+                .thenRequest(3)
+                .expectNext(1, 2, 3)
+                .then(() -> assertThat(meterRegistry.get("test.broadcast.lag.max").gauge().value(), equalTo(0.0)))
+                .thenCancel()
+                .verify();
+
+        assertThat(meterRegistry.get("test.broadcast.subscribers").gauge().value(), equalTo(0.0));
+    }
+
+    @Test
+    void serverSentEventsInterleaveHeartbeats() {
+        var broadcaster = new Broadcaster<Integer>("test", meterRegistry, 16, Broadcaster.OverflowPolicy.DROP_OLDEST,
+                Duration.ofMillis(50), 16);
+        broadcaster.emit(1);
+
+        StepVerifier.create(broadcaster.serverSentEvents(null))
+                .assertNext(event -> assertThat(event.data(), equalTo(1)))
+                .assertNext(event -> assertThat(event.comment(), equalTo("heartbeat")))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,57 @@
+package io.jay.moviescommon.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.sleuth.CurrentTraceContext;
+import org.springframework.cloud.sleuth.Tracer;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class StageTracerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private StageTracer stageTracer(double signalSampleRate) {
+        var beanFactory = new DefaultListableBeanFactory();
+        return new StageTracer("test.stage", meterRegistry, beanFactory.getBeanProvider(Tracer.class),
+                beanFactory.getBeanProvider(CurrentTraceContext.class), true, signalSampleRate);
+    }
+
+    private long count(String stage, String outcome) {
+        var timer = meterRegistry.find("test.stage").tags("stage", stage, "outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void timesEverySubscriptionByOutcome() {
+        var stageTracer = stageTracer(0);
+
+        var value = Mono.just(1).transform(stageTracer.traced("test"));
+        StepVerifier.create(value).expectNext(1).verifyComplete();
+        StepVerifier.create(value).expectNext(1).verifyComplete();
+        StepVerifier.create(Mono.empty().transform(stageTracer.traced("test"))).verifyComplete();
+        StepVerifier.create(Mono.error(new IllegalStateException()).transform(stageTracer.traced("test")))
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(Mono.never().transform(stageTracer.traced("test"))).thenCancel().verify();
+
+        assertThat(count("test", "success"), equalTo(2L));
+        assertThat(count("test", "empty"), equalTo(1L));
+        assertThat(count("test", "error"), equalTo(1L));
+        assertThat(count("test", "cancelled"), equalTo(1L));
+    }
+
+    @Test
+    void sampledSubscriptionsBehaveTheSame() {
+        var stageTracer = stageTracer(1);
+
+        StepVerifier.create(Mono.just(1).transform(stageTracer.traced("test")))
+                .expectNext(1)
+                .verifyComplete();
+
+        assertThat(count("test", "success"), equalTo(1L));
+    }
+}
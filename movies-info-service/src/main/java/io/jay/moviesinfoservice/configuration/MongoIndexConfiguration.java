@@ -0,0 +1,39 @@
+package io.jay.moviesinfoservice.configuration;
+
+import io.jay.moviescommon.configuration.MongoIndexInitializer;
+import io.jay.moviescommon.configuration.MongoIndexInitializer.HotPathQuery;
+import io.jay.moviesinfoservice.domain.MovieInfo;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class MongoIndexConfiguration {
+
+    public static final List<HotPathQuery> HOT_PATH_QUERIES = List.of(
+            new HotPathQuery("findByYear", MovieInfo.class,
+                    new Document("year", 2005), new Document()),
+            new HotPathQuery("findByName", MovieInfo.class,
+                    new Document("name", "Batman Begins"), new Document()),
+            new HotPathQuery("findPage(year)", MovieInfo.class,
+                    new Document("year", 2005), new Document("_id", 1)),
+            new HotPathQuery("findAllById", MovieInfo.class,
+                    new Document("_id", new Document("$in", List.of("specific-id"))), new Document())
+    );
+
+    @Bean
+    public MongoIndexInitializer mongoIndexInitializer(ReactiveMongoTemplate template,
+                                                       MongoMappingContext mappingContext,
+                                                       @Value("${mongo.indexes.mode:CREATE}") MongoIndexInitializer.Mode mode,
+                                                       @Value("${mongo.indexes.failOnMissing:true}") boolean failOnMissing,
+                                                       @Value("${mongo.indexes.timeout:30s}") Duration timeout) {
+        return new MongoIndexInitializer(template, mappingContext, List.of(MovieInfo.class), HOT_PATH_QUERIES,
+                mode, failOnMissing, timeout);
+    }
+}
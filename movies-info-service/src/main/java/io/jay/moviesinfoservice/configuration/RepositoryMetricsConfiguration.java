@@ -0,0 +1,20 @@
+package io.jay.moviesinfoservice.configuration;
+
+import io.jay.moviescommon.configuration.RepositoryMetricsPostProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Times every call to the Mongo repositories as {@code movieinfos.repository}, see {@link RepositoryMetricsPostProcessor}.
+ */
+@Configuration
+public class RepositoryMetricsConfiguration {
+
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RepositoryMetricsPostProcessor("movieinfos.repository", meterRegistry);
+    }
+}
@@ -0,0 +1,39 @@
+package io.jay.moviesinfoservice.configuration;
+
+import io.jay.moviescommon.stream.Broadcaster;
+import io.jay.moviescommon.stream.ChangeStreamFeed;
+import io.jay.moviesinfoservice.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class StreamConfiguration {
+
+    @Bean
+    public Broadcaster<MovieInfo> movieInfoBroadcaster(MeterRegistry meterRegistry,
+                                                       @Value("${movieinfos.broadcast.bufferSize:256}") int bufferSize,
+                                                       @Value("${movieinfos.broadcast.overflowPolicy:DROP_OLDEST}") Broadcaster.OverflowPolicy overflowPolicy,
+                                                       @Value("${movieinfos.broadcast.heartbeat:15s}") Duration heartbeat,
+                                                       @Value("${movieinfos.broadcast.replayCapacity:1024}") int replayCapacity) {
+        return new Broadcaster<>("movieinfos", meterRegistry, bufferSize, overflowPolicy, heartbeat, replayCapacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "movieinfos.broadcast.source", havingValue = "CHANGE_STREAM")
+    public ChangeStreamFeed<MovieInfo> movieInfoChangeStreamFeed(ReactiveMongoTemplate template,
+                                                                 Broadcaster<MovieInfo> movieInfoBroadcaster,
+                                                                 @Value("${movieinfos.broadcast.changeStream.tokenKey:movieinfos}") String tokenKey,
+                                                                 @Value("${movieinfos.broadcast.changeStream.tokenSaveInterval:1s}") Duration tokenSaveInterval,
+                                                                 @Value("${movieinfos.broadcast.changeStream.minBackoff:1s}") Duration minBackoff,
+                                                                 @Value("${movieinfos.broadcast.changeStream.maxBackoff:1m}") Duration maxBackoff) {
+        return new ChangeStreamFeed<>(tokenKey, template, MovieInfo.class, List.of("insert", "update", "replace", "delete"),
+                movieInfoBroadcaster, id -> MovieInfo.deleted(id.asString().getValue()), tokenSaveInterval, minBackoff, maxBackoff);
+    }
+}
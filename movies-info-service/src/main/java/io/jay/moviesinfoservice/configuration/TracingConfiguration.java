@@ -0,0 +1,23 @@
+package io.jay.moviesinfoservice.configuration;
+
+import io.jay.moviescommon.tracing.StageTracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.sleuth.CurrentTraceContext;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TracingConfiguration {
+
+    @Bean
+    public StageTracer stageTracer(MeterRegistry meterRegistry,
+                                   ObjectProvider<Tracer> tracer,
+                                   ObjectProvider<CurrentTraceContext> currentTraceContext,
+                                   @Value("${tracing.spans:true}") boolean spans,
+                                   @Value("${tracing.signals.sampleRate:0}") double signalSampleRate) {
+        return new StageTracer("movieinfos.stage", meterRegistry, tracer, currentTraceContext, spans, signalSampleRate);
+    }
+}
@@ -1,64 +1,219 @@
 package io.jay.moviesinfoservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jay.moviescommon.domain.BulkItem;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviescommon.stream.Broadcaster;
+import io.jay.moviescommon.stream.EventSource;
+import io.jay.moviescommon.tracing.StageTracer;
+import io.jay.moviesinfoservice.domain.BulkResult;
 import io.jay.moviesinfoservice.domain.MovieInfo;
 import io.jay.moviesinfoservice.service.MoviesInfoService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
 
 @RestController
 @RequestMapping("/v1/movieinfos")
 @RequiredArgsConstructor
 public class MoviesInfoController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final MoviesInfoService moviesInfoService;
-    private Sinks.Many<MovieInfo> moviesInfoSink = Sinks.many().replay().latest();
+    private final Broadcaster<MovieInfo> movieInfoBroadcaster;
+    private final StageTracer stageTracer;
+    private final ObjectMapper objectMapper;
+
+    @Value("${movieinfos.page.maxLimit:1000}")
+    private int maxLimit;
+
+    @Value("${movieinfos.stream.batchSize:256}")
+    private int streamBatchSize;
+
+    @Value("${movieinfos.broadcast.source:LOCAL}")
+    private EventSource eventSource;
+
+    // 0 lets clients keep a copy but revalidate it on every use
+    @Value("${movieinfos.cacheControl.maxAge:0s}")
+    private Duration cacheMaxAge;
 
     @PostMapping("")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
         return moviesInfoService.addMovieInfo(movieInfo)
-                .doOnNext(savedInfo -> moviesInfoSink.tryEmitNext(savedInfo));
+                .doOnNext(this::publish);
+    }
+
+    // with a change stream every replica gets the event from Mongo instead
+    private void publish(MovieInfo movieInfo) {
+        if (eventSource == EventSource.LOCAL) {
+            movieInfoBroadcaster.emit(movieInfo);
+        }
+    }
+
+    // subscribers such as caches evict the movie info on it
+    private void publishDeleted(String id) {
+        if (eventSource == EventSource.LOCAL) {
+            movieInfoBroadcaster.emit(Broadcaster.DELETE_EVENT, MovieInfo.deleted(id));
+        }
     }
 
     @GetMapping("")
-    public Flux<MovieInfo> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year) {
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year,
+                                                                  @RequestParam(value = "limit", required = false) Integer limit,
+                                                                  @RequestParam(value = "after", required = false) String after,
+                                                                  @RequestParam(value = "fields", required = false) String fields) {
+        var projection = Fields.parse(fields, MovieInfo.FIELDS);
+        if (limit != null || after != null) {
+            var pageSize = Math.max(1, Math.min(limit == null ? maxLimit : limit, maxLimit));
+            return moviesInfoService.getMovieInfosPage(year, after, pageSize, projection)
+                    .map(page -> {
+                        var response = ResponseEntity.ok();
+                        if (page.getNextCursor() != null) {
+                            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+                        }
+                        return response.body(Flux.fromIterable(page.getItems()));
+                    });
+        }
         if (year != null) {
-            return moviesInfoService.getMovieInfosByYear(year);
+            return Mono.just(ResponseEntity.ok(moviesInfoService.getMovieInfosByYear(year, projection)));
         }
-        return moviesInfoService.getAllMovieInfos();
+        return Mono.just(ResponseEntity.ok(moviesInfoService.getAllMovieInfos(projection)));
+    }
+
+    /**
+     * Streams every movie info as newline delimited JSON. Demand from the client drives the Mongo cursor,
+     * so at most a few batches are held in memory.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfo> streamMovieInfos(@RequestParam(value = "year", required = false) Integer year,
+                                            @RequestParam(value = "fields", required = false) String fields) {
+        return moviesInfoService.streamMovieInfos(year, streamBatchSize, Fields.parse(fields, MovieInfo.FIELDS));
     }
 
+    /**
+     * Reads the upload one line at a time, so a malformed line is reported with its index instead of failing the
+     * whole upload.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<BulkResult> addMovieInfos(@RequestBody Flux<String> lines) {
+        return moviesInfoService.addMovieInfos(BulkItem.fromNdjson(lines, objectMapper.readerFor(MovieInfo.class)), this::publish);
+    }
+
+    @PostMapping("/batch")
+    public Flux<MovieInfo> getMovieInfosByIds(@RequestBody List<String> ids) {
+        return moviesInfoService.getMovieInfosByIds(ids);
+    }
+
+    /**
+     * A conditional request only reads the version of the movie info, and gets a 304 without a body while its
+     * ETag still matches.
+     */
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
-        return moviesInfoService.getMovieInfoById(id)
-                .map(ResponseEntity.ok()::body)
+    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id,
+                                                            @RequestParam(value = "fields", required = false) String fields,
+                                                            ServerWebExchange exchange) {
+        var projection = Fields.parse(fields, MovieInfo.FIELDS);
+        var notModified = exchange.getRequest().getHeaders().getIfNoneMatch().isEmpty()
+                ? Mono.<ResponseEntity<MovieInfo>>empty()
+                : moviesInfoService.getMovieInfoVersion(id)
+                        .map(version -> eTag(version, projection))
+                        .filter(exchange::checkNotModified)
+                        .map(eTag -> ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(eTag)
+                                .cacheControl(cacheControl())
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .<MovieInfo>build());
+        return notModified
+                .switchIfEmpty(Mono.defer(() -> moviesInfoService.getMovieInfoById(id, projection)
+                        .map(movieInfo -> ResponseEntity.ok()
+                                .eTag(eTag(movieInfo.getVersion(), projection))
+                                .cacheControl(cacheControl())
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .body(movieInfo))))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(stageTracer.traced("movieinfo.get"));
+    }
+
+    // strong, as a projection of a version always serializes to the same bytes in a given format, and responses vary by Accept
+    private static String eTag(Long version, Fields fields) {
+        var eTag = "\"" + (version == null ? 0 : version);
+        if (!fields.isAll()) {
+            eTag += ";" + String.join(";", new TreeSet<>(fields.getNames()));
+        }
+        return eTag + "\"";
     }
 
+    private CacheControl cacheControl() {
+        return cacheMaxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(cacheMaxAge);
+    }
+
+    /**
+     * With {@code If-Match}, only updates the movie info if it is still at the version of one of the ETags, and
+     * answers 412 otherwise.
+     */
     @PutMapping("/{id}")
-    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable String id) {
-        return moviesInfoService.updateMovieInfo(updatedMovieInfo, id)
-                .map(ResponseEntity.ok()::body)
+    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable String id,
+                                                           ServerWebExchange exchange) {
+        return moviesInfoService.updateMovieInfo(updatedMovieInfo, id, ifMatchVersions(exchange.getRequest().getHeaders()))
+                .doOnNext(this::publish)
+                .map(movieInfo -> ResponseEntity.ok()
+                        .eTag(eTag(movieInfo.getVersion(), Fields.ALL))
+                        .body(movieInfo))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
+    /**
+     * With {@code If-Match}, only deletes the movie info if it is still at the version of one of the ETags, and
+     * answers 412 otherwise.
+     */
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-        return moviesInfoService.deleteMovieInfo(id);
+    public Mono<Void> deleteMovieInfo(@PathVariable String id, ServerWebExchange exchange) {
+        return moviesInfoService.deleteMovieInfo(id, ifMatchVersions(exchange.getRequest().getHeaders()))
+                .then(Mono.fromRunnable(() -> publishDeleted(id)));
+    }
+
+    /**
+     * The versions named by {@code If-Match}, {@code null} without one or with {@code *}. If-Match compares strongly
+     * against the whole movie info, so weak ETags and ETags of projections match no version.
+     */
+    private static List<Long> ifMatchVersions(HttpHeaders headers) {
+        var ifMatch = headers.getIfMatch();
+        if (ifMatch.isEmpty() || ifMatch.contains("*")) {
+            return null;
+        }
+        var versions = new ArrayList<Long>(ifMatch.size());
+        for (var eTag : ifMatch) {
+            if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+                try {
+                    versions.add(Long.valueOf(eTag.substring(1, eTag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        return versions;
     }
 
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<MovieInfo> getMovieInfoStream() {
-        return moviesInfoSink.asFlux();
+    public Flux<ServerSentEvent<MovieInfo>> getMovieInfoStream(@RequestHeader(value = Broadcaster.LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        return movieInfoBroadcaster.serverSentEvents(lastEventId);
     }
 }
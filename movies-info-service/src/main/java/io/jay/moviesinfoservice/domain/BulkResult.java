@@ -0,0 +1,49 @@
+package io.jay.moviesinfoservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk upload. Items are identified by their zero-based position in the upload; only the first
+ * failures are listed, so the result stays small whatever the size of the upload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResult {
+
+    private long received;
+    private long inserted;
+    private long failed;
+    private List<ItemError> errors = new ArrayList<>();
+
+    public void fail(long index, String message) {
+        failed++;
+        errors.add(new ItemError(index, message));
+    }
+
+    /**
+     * Adds the counts and failures of {@code batch}, keeping at most {@code maxErrors} failures.
+     */
+    public BulkResult merge(BulkResult batch, int maxErrors) {
+        received += batch.received;
+        inserted += batch.inserted;
+        failed += batch.failed;
+        var room = Math.max(0, maxErrors - errors.size());
+        errors.addAll(batch.errors.subList(0, Math.min(room, batch.errors.size())));
+        return this;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemError {
+
+        private long index;
+        private String message;
+    }
+}
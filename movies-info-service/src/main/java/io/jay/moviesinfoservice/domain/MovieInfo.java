@@ -1,9 +1,14 @@
 package io.jay.moviesinfoservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -11,18 +16,29 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Document
+@CompoundIndex(name = "year_id", def = "{'year': 1, '_id': 1}")
 public class MovieInfo {
+
+    /**
+     * The properties callers may select with {@code fields=}.
+     */
+    public static final Set<String> FIELDS = Set.of("movieInfoId", "name", "year", "cast", "release_date");
+
     @Id
     private String movieInfoId;
 
+    @Indexed
     @NotBlank(message = "movieInfo.name must be present")
     private String name;
 
+    // findByYear is served by the year_id compound index
     @NotNull
     @Positive(message = "movieInfo.year must be a positive")
     private Integer year;
@@ -30,4 +46,22 @@ public class MovieInfo {
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
 
     private LocalDate release_date;
+
+    // bumped on every save and the source of the ETag; never taken from a request body
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this(movieInfoId, name, year, cast, release_date, null);
+    }
+
+    /**
+     * The data of a delete event: only the id of the movie info that is gone.
+     */
+    public static MovieInfo deleted(String movieInfoId) {
+        var movieInfo = new MovieInfo();
+        movieInfo.setMovieInfoId(movieInfoId);
+        return movieInfo;
+    }
 }
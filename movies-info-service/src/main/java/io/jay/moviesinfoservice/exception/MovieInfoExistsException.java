@@ -0,0 +1,8 @@
+package io.jay.moviesinfoservice.exception;
+
+public class MovieInfoExistsException extends RuntimeException {
+
+    public MovieInfoExistsException(String id) {
+        super("Movie info " + id + " already exists, update it with PUT instead");
+    }
+}
@@ -0,0 +1,8 @@
+package io.jay.moviesinfoservice.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String id) {
+        super("Movie info " + id + " is not at the version given by If-Match");
+    }
+}
@@ -1,5 +1,8 @@
 package io.jay.moviesinfoservice.exceptionhandler;
 
+import io.jay.moviescommon.exception.InvalidFieldsException;
+import io.jay.moviesinfoservice.exception.MovieInfoExistsException;
+import io.jay.moviesinfoservice.exception.PreconditionFailedException;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -22,4 +25,19 @@ public class GlobalExceptionHandler {
                 .collect(Collectors.joining(", "));
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorMessage);
     }
+
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<String> invalidFieldsException(InvalidFieldsException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(MovieInfoExistsException.class)
+    public ResponseEntity<String> movieInfoExistsException(MovieInfoExistsException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<String> preconditionFailedException(PreconditionFailedException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+    }
 }
@@ -0,0 +1,62 @@
+package io.jay.moviesinfoservice.repository;
+
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviesinfoservice.domain.MovieInfo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+public interface MovieInfoRepositoryCustom {
+
+    /**
+     * @param year optional filter
+     */
+    Flux<MovieInfo> findMovieInfos(Integer year, Fields fields);
+
+    Mono<MovieInfo> findMovieInfo(String id, Fields fields);
+
+    /**
+     * Reads only the version of a movie info, enough to answer a conditional request.
+     */
+    Mono<Long> findVersion(String id);
+
+    /**
+     * Sets the updatable properties of a movie info and bumps its version with one {@code findAndModify}.
+     *
+     * @param versions optional, the versions the movie info has to be at for the update to apply
+     * @return the updated movie info, empty if none matched
+     */
+    Mono<MovieInfo> updateMovieInfo(String id, MovieInfo changes, List<Long> versions);
+
+    /**
+     * Deletes a movie info with one {@code deleteOne}.
+     *
+     * @param versions optional, the versions the movie info has to be at for the delete to apply
+     * @return whether a movie info was deleted
+     */
+    Mono<Boolean> deleteMovieInfo(String id, List<Long> versions);
+
+    /**
+     * Movie infos sorted by {@code _id}, starting right after {@code after}.
+     *
+     * @param year  optional filter
+     * @param after optional cursor, the {@code _id} of the last movie info already seen
+     */
+    Flux<MovieInfo> findPage(Integer year, String after, int limit, Fields fields);
+
+    /**
+     * All movie infos sorted by {@code _id}, fetched from the cursor {@code batchSize} documents at a time
+     * as the subscriber requests them.
+     */
+    Flux<MovieInfo> streamAll(Integer year, int batchSize, Fields fields);
+
+    /**
+     * Inserts {@code movieInfos} with one unordered {@code insertMany}, so a failing document doesn't stop the others.
+     * Documents without an id get one first.
+     *
+     * @return the reason of every failed insert, by position in {@code movieInfos}
+     */
+    Mono<Map<Integer, String>> insertUnordered(List<MovieInfo> movieInfos);
+}
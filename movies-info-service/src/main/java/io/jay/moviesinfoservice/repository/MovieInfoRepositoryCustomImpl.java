@@ -0,0 +1,143 @@
+package io.jay.moviesinfoservice.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviesinfoservice.domain.MovieInfo;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class MovieInfoRepositoryCustomImpl implements MovieInfoRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Flux<MovieInfo> findMovieInfos(Integer year, Fields fields) {
+        return template.find(fields.applyTo(filter(year, null)), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> findMovieInfo(String id, Fields fields) {
+        return template.findOne(fields.applyTo(Query.query(where("_id").is(id))), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<Long> findVersion(String id) {
+        var query = Query.query(where("_id").is(id));
+        query.fields().include("version");
+        return template.findOne(query, MovieInfo.class)
+                .map(movieInfo -> movieInfo.getVersion() == null ? 0L : movieInfo.getVersion());
+    }
+
+    @Override
+    public Mono<MovieInfo> updateMovieInfo(String id, MovieInfo changes, List<Long> versions) {
+        var update = new Update()
+                .set("name", changes.getName())
+                .set("year", changes.getYear())
+                .set("cast", changes.getCast())
+                .set("release_date", changes.getRelease_date())
+                .inc("version", 1);
+        return template.findAndModify(versioned(id, versions), update, FindAndModifyOptions.options().returnNew(true),
+                MovieInfo.class);
+    }
+
+    @Override
+    public Mono<Boolean> deleteMovieInfo(String id, List<Long> versions) {
+        return template.remove(versioned(id, versions), MovieInfo.class)
+                .map(result -> result.getDeletedCount() > 0);
+    }
+
+    // movie infos stored before they had a version are served as version 0
+    private Query versioned(String id, List<Long> versions) {
+        var criteria = where("_id").is(id);
+        if (versions != null) {
+            criteria = versions.contains(0L)
+                    ? criteria.orOperator(where("version").in(versions), where("version").exists(false))
+                    : criteria.and("version").in(versions);
+        }
+        return Query.query(criteria);
+    }
+
+    @Override
+    public Flux<MovieInfo> findPage(Integer year, String after, int limit, Fields fields) {
+        var query = filter(year, after)
+                .with(Sort.by("_id"))
+                .limit(limit);
+        return template.find(fields.applyTo(query), MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> streamAll(Integer year, int batchSize, Fields fields) {
+        var query = filter(year, null)
+                .with(Sort.by("_id"))
+                .cursorBatchSize(batchSize);
+        return template.find(fields.applyTo(query), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertUnordered(List<MovieInfo> movieInfos) {
+        var documents = movieInfos.stream()
+                .map(movieInfo -> {
+                    if (movieInfo.getMovieInfoId() == null) {
+                        movieInfo.setMovieInfoId(new ObjectId().toHexString());
+                    }
+                    // what the first save would set
+                    if (movieInfo.getVersion() == null) {
+                        movieInfo.setVersion(0L);
+                    }
+                    var document = new Document();
+                    template.getConverter().write(movieInfo, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+        return template.getCollection(template.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> ex.getWriteErrors().isEmpty()
+                        ? Mono.error(ex)
+                        : Mono.just(ex.getWriteErrors().stream()
+                                .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))));
+    }
+
+    private Query filter(Integer year, String after) {
+        var criteria = new Criteria();
+        if (year != null) {
+            criteria = criteria.and("year").is(year);
+        }
+        if (after != null) {
+            criteria = criteria.andOperator(afterId(after));
+        }
+        return Query.query(criteria);
+    }
+
+    /**
+     * Generated ids are stored as ObjectIds and sort after every string id, so a string cursor
+     * still has all the ObjectIds ahead of it.
+     */
+    private Criteria afterId(String after) {
+        if (ObjectId.isValid(after)) {
+            return where("_id").gt(new ObjectId(after));
+        }
+        return new Criteria().orOperator(
+                where("_id").gt(after),
+                where("_id").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+}
@@ -0,0 +1,156 @@
+package io.jay.moviesinfoservice.seed;
+
+import io.jay.moviescommon.seed.ZipfSampler;
+import io.jay.moviesinfoservice.domain.MovieInfo;
+import io.jay.moviesinfoservice.repository.MovieInfoRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the collection with {@code movieinfos.seed.movies} synthetic movie infos, ids {@code "1"} to
+ * {@code "<movies>"}, when the {@code seed} profile is active.
+ * <ul>
+ *     <li>release years lean towards recent ones</li>
+ *     <li>cast sizes vary around {@code castSize}, and a few popular actors appear in many movies</li>
+ *     <li>every movie info only depends on {@code seed} and its id, so the data is the same on every run
+ *     however the batches interleave</li>
+ * </ul>
+ * Seeding starts once the application is ready and runs in the background, {@code concurrency} batches at a time.
+ */
+@Component
+@Profile("seed")
+@Log4j2
+public class MovieInfoSeeder {
+
+    private static final int LAST_YEAR = 2024;
+    private static final int FIRST_YEAR = 1920;
+    private static final double MEAN_AGE_YEARS = 15;
+    private static final String[] ADJECTIVES = {"Silent", "Last", "Dark", "Broken", "Hidden", "Golden", "Lost",
+            "Final", "Crimson", "Endless", "Wild", "Frozen", "Distant", "Burning", "Hollow", "Secret"};
+    private static final String[] NOUNS = {"Harbor", "Kingdom", "Knight", "River", "Promise", "Frontier", "Signal",
+            "Garden", "Empire", "Horizon", "Witness", "Storm", "Legacy", "Machine", "Voyage", "Summer"};
+    private static final String[] SEQUELS = {"", "", "", "", "", "", " II", " III"};
+
+    private final ReactiveMongoTemplate template;
+    private final MovieInfoRepository repository;
+    private final long movies;
+    private final long seed;
+    private final long baseSeed;
+    private final int batchSize;
+    private final int concurrency;
+    private final boolean replace;
+    private final double castSize;
+    private final ZipfSampler actorSampler;
+    private volatile Disposable subscription;
+
+    public MovieInfoSeeder(ReactiveMongoTemplate template,
+                           MovieInfoRepository repository,
+                           @Value("${movieinfos.seed.movies:10000}") long movies,
+                           @Value("${movieinfos.seed.seed:42}") long seed,
+                           @Value("${movieinfos.seed.batchSize:1000}") int batchSize,
+                           @Value("${movieinfos.seed.concurrency:4}") int concurrency,
+                           @Value("${movieinfos.seed.replace:true}") boolean replace,
+                           @Value("${movieinfos.seed.castSize:6}") double castSize,
+                           @Value("${movieinfos.seed.actors:50000}") int actors,
+                           @Value("${movieinfos.seed.actorExponent:1.1}") double actorExponent) {
+        this.template = template;
+        this.repository = repository;
+        this.movies = movies;
+        this.seed = seed;
+        this.baseSeed = new SplittableRandom(seed).nextLong();
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.replace = replace;
+        this.castSize = castSize;
+        this.actorSampler = new ZipfSampler(actors, actorExponent);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        log.info("Seeding {} movie infos with seed {}", movies, seed);
+        var started = System.nanoTime();
+        var inserted = new AtomicLong();
+        var batches = (movies + batchSize - 1) / batchSize;
+        // remove rather than drop, so the indexes created at startup stay in place
+        var clear = replace ? template.remove(new Query(), MovieInfo.class).then() : Mono.<Void>empty();
+        subscription = clear
+                .thenMany(Flux.range(0, (int) batches))
+                .flatMap(batch -> {
+                    var movieInfos = batch(batch);
+                    return repository.insertUnordered(movieInfos)
+                            .map(failures -> movieInfos.size() - failures.size());
+                }, concurrency)
+                .doOnNext(count -> {
+                    var total = inserted.addAndGet(count);
+                    if ((total - count) * 10 / movies != total * 10 / movies) {
+                        log.info("Seeded {} of {} movie infos", total, movies);
+                    }
+                })
+                .then(Mono.fromRunnable(() -> log.info("Seeded {} movie infos in {} ms", inserted.get(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))))
+                .onErrorResume(ex -> {
+                    log.error("Seeding movie infos failed", ex);
+                    return Mono.empty();
+                })
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    List<MovieInfo> batch(int batch) {
+        var first = (long) batch * batchSize + 1;
+        var last = Math.min(movies, first + batchSize - 1);
+        var movieInfos = new ArrayList<MovieInfo>((int) (last - first + 1));
+        for (long id = first; id <= last; id++) {
+            movieInfos.add(movieInfo(id));
+        }
+        return movieInfos;
+    }
+
+    MovieInfo movieInfo(long id) {
+        var random = new SplittableRandom(baseSeed ^ id);
+        var name = "The " + pick(ADJECTIVES, random) + " " + pick(NOUNS, random) + pick(SEQUELS, random);
+        var age = (int) (-MEAN_AGE_YEARS * Math.log(1 - random.nextDouble()));
+        var year = Math.max(FIRST_YEAR, LAST_YEAR - age);
+        var releaseDate = LocalDate.of(year, 1, 1).plusDays(random.nextInt(365));
+        return new MovieInfo(String.valueOf(id), name, year, cast(random), releaseDate);
+    }
+
+    // geometric around castSize, at least one actor
+    private List<String> cast(SplittableRandom random) {
+        var p = 1 / castSize;
+        var size = 1 + (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+        var cast = new LinkedHashSet<String>();
+        for (int i = 0; i < size; i++) {
+            cast.add("Actor " + actorSampler.sample(random));
+        }
+        return new ArrayList<>(cast);
+    }
+
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -1,46 +1,171 @@
 package io.jay.moviesinfoservice.service;
 
+import io.jay.moviescommon.domain.BulkItem;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviescommon.domain.KeysetPage;
+import io.jay.moviescommon.tracing.StageTracer;
+import io.jay.moviesinfoservice.domain.BulkResult;
 import io.jay.moviesinfoservice.domain.MovieInfo;
+import io.jay.moviesinfoservice.exception.MovieInfoExistsException;
+import io.jay.moviesinfoservice.exception.PreconditionFailedException;
 import io.jay.moviesinfoservice.repository.MovieInfoRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class MoviesInfoService {
 
     private final MovieInfoRepository repository;
+    private final Validator validator;
+    private final StageTracer stageTracer;
+
+    @Value("${movieinfos.bulk.batchSize:500}")
+    private int bulkBatchSize;
+
+    @Value("${movieinfos.bulk.concurrency:4}")
+    private int bulkConcurrency;
 
+    @Value("${movieinfos.bulk.maxErrors:100}")
+    private int bulkMaxErrors;
+
+    /**
+     * Only adds new movie infos: with its version unset, saving one whose id is taken fails with a
+     * {@link MovieInfoExistsException} instead of overwriting it.
+     */
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return repository.save(movieInfo).log();
+        return repository.save(movieInfo)
+                .onErrorMap(DuplicateKeyException.class, ex -> new MovieInfoExistsException(movieInfo.getMovieInfoId()))
+                .transform(stageTracer.traced("movieinfo.add"));
+    }
+
+    /**
+     * Adds the movie infos of an upload. The upload is read in batches of {@code bulkBatchSize}, each stored with
+     * one unordered insert, with at most {@code bulkConcurrency} batches in flight, so memory stays flat whatever
+     * the size of the upload. Unreadable, invalid or rejected movie infos don't stop the others; they are reported
+     * in the result.
+     *
+     * @param onInserted called with every stored movie info
+     */
+    public Mono<BulkResult> addMovieInfos(Flux<BulkItem<MovieInfo>> movieInfos, Consumer<MovieInfo> onInserted) {
+        return movieInfos
+                .buffer(bulkBatchSize)
+                .flatMapSequential(batch -> addBatch(batch, onInserted), bulkConcurrency)
+                .reduceWith(BulkResult::new, (result, batch) -> result.merge(batch, bulkMaxErrors));
     }
 
-    public Flux<MovieInfo> getAllMovieInfos() {
-        return repository.findAll();
+    private Mono<BulkResult> addBatch(List<BulkItem<MovieInfo>> batch, Consumer<MovieInfo> onInserted) {
+        var result = new BulkResult();
+        result.setReceived(batch.size());
+        var indexes = new ArrayList<Long>(batch.size());
+        var movieInfos = new ArrayList<MovieInfo>(batch.size());
+        for (var item : batch) {
+            var message = item.getError() != null ? item.getError() : violationMessage(item.getValue());
+            if (message != null) {
+                result.fail(item.getIndex(), message);
+            } else {
+                indexes.add(item.getIndex());
+                movieInfos.add(item.getValue());
+            }
+        }
+        if (movieInfos.isEmpty()) {
+            return Mono.just(result);
+        }
+        return repository.insertUnordered(movieInfos)
+                .map(failures -> {
+                    for (int i = 0; i < movieInfos.size(); i++) {
+                        if (failures.containsKey(i)) {
+                            result.fail(indexes.get(i), failures.get(i));
+                        } else {
+                            onInserted.accept(movieInfos.get(i));
+                        }
+                    }
+                    result.setInserted(movieInfos.size() - failures.size());
+                    return result;
+                });
     }
 
-    public Mono<MovieInfo> getMovieInfoById(String id) {
-        return repository.findById(id);
+    private String violationMessage(MovieInfo movieInfo) {
+        Set<ConstraintViolation<MovieInfo>> violations = validator.validate(movieInfo);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
     }
 
-    public Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String id) {
-        return repository.findById(id)
-                .flatMap(movieInfo -> {
-                    movieInfo.setCast(updatedMovieInfo.getCast());
-                    movieInfo.setName(updatedMovieInfo.getName());
-                    movieInfo.setRelease_date(updatedMovieInfo.getRelease_date());
-                    movieInfo.setYear(updatedMovieInfo.getYear());
-                    return repository.save(movieInfo);
+    public Flux<MovieInfo> getAllMovieInfos(Fields fields) {
+        return repository.findMovieInfos(null, fields);
+    }
+
+    /**
+     * Fetches one extra movie info to tell whether there is a next page.
+     */
+    public Mono<KeysetPage<MovieInfo>> getMovieInfosPage(Integer year, String after, int limit, Fields fields) {
+        return repository.findPage(year, after, limit + 1, fields)
+                .collectList()
+                .map(movieInfos -> {
+                    if (movieInfos.size() <= limit) {
+                        return new KeysetPage<>(movieInfos, null);
+                    }
+                    var page = movieInfos.subList(0, limit);
+                    return new KeysetPage<>(page, page.get(limit - 1).getMovieInfoId());
                 });
     }
 
-    public Mono<Void> deleteMovieInfo(String id) {
-        return repository.deleteById(id);
+    public Flux<MovieInfo> streamMovieInfos(Integer year, int batchSize, Fields fields) {
+        return repository.streamAll(year, batchSize, fields);
+    }
+
+    public Mono<MovieInfo> getMovieInfoById(String id, Fields fields) {
+        return repository.findMovieInfo(id, fields);
+    }
+
+    public Mono<Long> getMovieInfoVersion(String id) {
+        return repository.findVersion(id);
+    }
+
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids) {
+        return repository.findAllById(ids);
+    }
+
+    /**
+     * Updates the movie info in one round trip, so concurrent updates can't overwrite each other's reads.
+     *
+     * @param versions optional, from {@code If-Match}: fails with a {@link PreconditionFailedException} unless the
+     *                 movie info is at one of them
+     */
+    public Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String id, List<Long> versions) {
+        var updated = repository.updateMovieInfo(id, updatedMovieInfo, versions);
+        return versions == null ? updated : updated.switchIfEmpty(Mono.error(() -> new PreconditionFailedException(id)));
+    }
+
+    /**
+     * @param versions optional, from {@code If-Match}: fails with a {@link PreconditionFailedException} unless the
+     *                 movie info is at one of them
+     */
+    public Mono<Void> deleteMovieInfo(String id, List<Long> versions) {
+        return repository.deleteMovieInfo(id, versions)
+                .flatMap(deleted -> deleted || versions == null
+                        ? Mono.<Void>empty()
+                        : Mono.error(new PreconditionFailedException(id)));
     }
 
-    public Flux<MovieInfo> getMovieInfosByYear(Integer year) {
-        return repository.findByYear(year);
+    public Flux<MovieInfo> getMovieInfosByYear(Integer year, Fields fields) {
+        return repository.findMovieInfos(year, fields);
     }
 }
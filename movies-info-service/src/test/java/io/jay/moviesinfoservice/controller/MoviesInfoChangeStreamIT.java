@@ -0,0 +1,141 @@
+package io.jay.moviesinfoservice.controller;
+
+import io.jay.moviescommon.stream.Broadcaster;
+import io.jay.moviescommon.stream.StreamResumeToken;
+import io.jay.moviesinfoservice.domain.MovieInfo;
+import io.jay.moviesinfoservice.repository.MovieInfoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Change streams need a replica set, so this runs against a single node replica set.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=4.0.21",
+        "spring.mongodb.embedded.storage.repl-set-name=rs0",
+        "movieinfos.broadcast.source=CHANGE_STREAM",
+        "movieinfos.broadcast.changeStream.tokenSaveInterval=100ms"
+})
+class MoviesInfoChangeStreamIT {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll()
+                .block();
+    }
+
+    private Flux<ServerSentEvent<MovieInfo>> stream(String lastEventId) {
+        return client.get()
+                .uri("/v1/movieinfos/stream")
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set(Broadcaster.LAST_EVENT_ID_HEADER, lastEventId);
+                    }
+                })
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {
+                })
+                .getResponseBody()
+                .filter(event -> event.data() != null);
+    }
+
+    private static MovieInfo movieInfo(String name) {
+        return new MovieInfo(null, name, 2010, List.of("Leonardo DiCaprio"), LocalDate.parse("2010-07-16"));
+    }
+
+    private ServerSentEvent<MovieInfo> awaitEvent(String name) {
+        return stream(null)
+                .filter(event -> name.equals(event.data().getName()))
+                .blockFirst(TIMEOUT);
+    }
+
+    @Test
+    void streamsChangesWrittenOutsideThisReplica() {
+        // written straight to Mongo, as another replica would
+        movieInfoRepository.save(movieInfo("Inception"))
+                .block();
+
+        var event = awaitEvent("Inception");
+
+        assertThat(event.data().getMovieInfoId(), is(not(nullValue())));
+        assertThat(Long.parseLong(event.id()), is(greaterThan(0L)));
+    }
+
+    @Test
+    void changesMadeThroughTheApiAreStreamedOnce() {
+        client.post()
+                .uri("/v1/movieinfos")
+                .bodyValue(movieInfo("Interstellar"))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        var event = awaitEvent("Interstellar");
+
+        var names = stream(event.id())
+                .take(Duration.ofMillis(500))
+                .map(received -> received.data().getName())
+                .collectList()
+                .block(TIMEOUT);
+        assertThat(names, is(empty()));
+    }
+
+    @Test
+    void resumesAfterLastEventId() {
+        movieInfoRepository.save(movieInfo("Memento"))
+                .block();
+        var first = awaitEvent("Memento");
+        movieInfoRepository.save(movieInfo("Tenet"))
+                .block();
+        awaitEvent("Tenet");
+
+        var resumed = stream(first.id())
+                .blockFirst(TIMEOUT);
+
+        assertThat(resumed.data().getName(), equalTo("Tenet"));
+    }
+
+    @Test
+    void savesResumeToken() {
+        movieInfoRepository.save(movieInfo("Dunkirk"))
+                .block();
+        awaitEvent("Dunkirk");
+
+        var token = template.findById("movieinfos", StreamResumeToken.class)
+                .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(100)))
+                .block(TIMEOUT);
+
+        assertThat(token.getToken(), is(not(emptyOrNullString())));
+    }
+}
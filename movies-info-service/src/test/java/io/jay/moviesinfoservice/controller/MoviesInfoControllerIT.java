@@ -1,13 +1,18 @@
 package io.jay.moviesinfoservice.controller;
 
+import io.jay.moviesinfoservice.domain.BulkResult;
 import io.jay.moviesinfoservice.domain.MovieInfo;
 import io.jay.moviesinfoservice.repository.MovieInfoRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -15,12 +20,14 @@ import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 @TestPropertySource(properties = "spring.mongodb.embedded.version=3.5.5")
 class MoviesInfoControllerIT {
 
@@ -64,6 +71,51 @@ class MoviesInfoControllerIT {
                 });
     }
 
+    @Test
+    void addMovieInfo_existingIdIsAConflict() {
+        var movie = new MovieInfo("specific-id", "Movie Title", 2021, List.of("First Last"), LocalDate.parse("2021-01-11"));
+
+        client.post()
+                .uri("/v1/movieinfos")
+                .bodyValue(movie)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        StepVerifier.create(movieInfoRepository.findById("specific-id"))
+                .assertNext(movieInfo -> assertThat(movieInfo.getName(), equalTo("Dark Knight Rises")))
+                .verifyComplete();
+    }
+
+    @Test
+    void addMovieInfos_bulk() {
+        var upload = String.join("\n",
+                "{\"name\": \"Inception\", \"year\": 2010, \"cast\": [\"Leonardo DiCaprio\"]}",
+                "{\"name\": \"\", \"year\": 2010, \"cast\": [\"Nobody\"]}",
+                "{\"movieInfoId\": \"specific-id\", \"name\": \"Duplicate\", \"year\": 2012, \"cast\": [\"Christian Bale\"]}",
+                "{\"name\": \"Interstellar\", \"year\": 2014, \"cast\": [\"Matthew McConaughey\"]}");
+
+        client.post()
+                .uri("/v1/movieinfos/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(upload)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(BulkResult.class)
+                .consumeWith(bulkResultEntityExchangeResult -> {
+                    var result = bulkResultEntityExchangeResult.getResponseBody();
+                    assertThat(result.getReceived(), equalTo(4L));
+                    assertThat(result.getInserted(), equalTo(2L));
+                    assertThat(result.getErrors().stream().map(BulkResult.ItemError::getIndex).sorted().collect(Collectors.toList()),
+                            equalTo(List.of(1L, 2L)));
+                });
+
+        StepVerifier.create(movieInfoRepository.findAll())
+                .expectNextCount(5)
+                .verifyComplete();
+    }
+
     @Test
     void getAllMovieInfos() {
         client.get()
@@ -75,6 +127,30 @@ class MoviesInfoControllerIT {
                 .hasSize(3);
     }
 
+    @Test
+    void getMovieInfosPage() {
+        var firstPage = client.get()
+                .uri("/v1/movieinfos?limit=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2)
+                .returnResult();
+        var nextCursor = firstPage.getResponseHeaders().getFirst(MoviesInfoController.NEXT_CURSOR_HEADER);
+        assertThat(nextCursor, is(not(nullValue())));
+
+        client.get()
+                .uri("/v1/movieinfos?limit=2&after={after}", nextCursor)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(MoviesInfoController.NEXT_CURSOR_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void getMovieInfoById() {
         client.get()
@@ -86,6 +162,47 @@ class MoviesInfoControllerIT {
                 .jsonPath("$.name").isEqualTo("Dark Knight Rises");
     }
 
+    @Test
+    void prometheusScrape() {
+        client.get()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // histograms make for a large scrape
+        client.mutate()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build()
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .consumeWith(result -> {
+                    var scrape = result.getResponseBody();
+                    assertThat(scrape, containsString("http_server_requests_seconds_bucket{"));
+                    assertThat(scrape, containsString("uri=\"/v1/movieinfos/{id}\""));
+                    assertThat(scrape, containsString("movieinfos_repository_seconds_bucket{method=\"findMovieInfo\",outcome=\"success\",repository=\"MovieInfoRepository\""));
+                    assertThat(scrape, containsString("movieinfos_stage_seconds_bucket{outcome=\"success\",stage=\"movieinfo.get\""));
+                    assertThat(scrape, containsString("movieinfos_broadcast_subscribers "));
+                    assertThat(scrape, containsString("movieinfos_broadcast_dropped_total{"));
+                });
+    }
+
+    @Test
+    void getMovieInfosByIds() {
+        client.post()
+                .uri("/v1/movieinfos/batch")
+                .bodyValue(List.of("specific-id", "non-existing-id"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void updateMovieInfo() {
         var updateInfo = new MovieInfo(null, "new movie", 2022, List.of("actor"), LocalDate.parse("2022-01-12"));
@@ -116,6 +233,49 @@ class MoviesInfoControllerIT {
                 .expectBody(Void.class);
     }
 
+    @Test
+    void updateMovieInfo_ifMatch() {
+        var updateInfo = new MovieInfo(null, "new movie", 2022, List.of("actor"), LocalDate.parse("2022-01-12"));
+        client.put()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(updateInfo)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"");
+
+        // a second writer still holding version 0 doesn't overwrite the first
+        client.put()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(updateInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void deleteMovieInfo_ifMatch() {
+        client.delete()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .header(HttpHeaders.IF_MATCH, "\"7\"")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        client.delete()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        StepVerifier.create(movieInfoRepository.findById("specific-id"))
+                .verifyComplete();
+    }
+
     @Test
     void updateMovieInfo_notFound() {
         var updateInfo = new MovieInfo(null, "new movie", 2022, List.of("actor"), LocalDate.parse("2022-01-12"));
@@ -1,27 +1,51 @@
 package io.jay.moviesinfoservice.controller;
 
+import io.jay.moviescommon.configuration.CodecConfiguration;
+import io.jay.moviescommon.domain.BulkItem;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviescommon.domain.KeysetPage;
+import io.jay.moviescommon.stream.Broadcaster;
+import io.jay.moviesinfoservice.configuration.StreamConfiguration;
+import io.jay.moviesinfoservice.configuration.TracingConfiguration;
+import io.jay.moviesinfoservice.domain.BulkResult;
 import io.jay.moviesinfoservice.domain.MovieInfo;
+import io.jay.moviesinfoservice.exception.MovieInfoExistsException;
+import io.jay.moviesinfoservice.exception.PreconditionFailedException;
 import io.jay.moviesinfoservice.service.MoviesInfoService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
 @AutoConfigureWebTestClient
+@Import({StreamConfiguration.class, CodecConfiguration.class, TracingConfiguration.class, SimpleMeterRegistry.class})
 public class MoviesInfoControllerTests {
 
     @Autowired
@@ -30,6 +54,9 @@ public class MoviesInfoControllerTests {
     @MockBean
     private MoviesInfoService moviesInfoServiceMock;
 
+    @Autowired
+    private Broadcaster<MovieInfo> movieInfoBroadcaster;
+
     @Test
     void getAllMoviesInfo() {
         var movieInfos = List.of(
@@ -37,7 +64,7 @@ public class MoviesInfoControllerTests {
                 new MovieInfo(null, "The Dark Knight", 2008, List.of("Christian Bale"), LocalDate.parse("2008-07-18")),
                 new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"))
         );
-        when(moviesInfoServiceMock.getAllMovieInfos())
+        when(moviesInfoServiceMock.getAllMovieInfos(Fields.ALL))
                 .thenReturn(Flux.fromIterable(movieInfos));
 
         client.get()
@@ -52,7 +79,7 @@ public class MoviesInfoControllerTests {
     @Test
     void getMovieInfoById() {
         var movieInfo = new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
-        when(moviesInfoServiceMock.getMovieInfoById("specific-id"))
+        when(moviesInfoServiceMock.getMovieInfoById("specific-id", Fields.ALL))
                 .thenReturn(Mono.just(movieInfo));
 
         client
@@ -69,6 +96,26 @@ public class MoviesInfoControllerTests {
                 });
     }
 
+    @Test
+    void getMovieInfosByIds() {
+        var movieInfos = List.of(
+                new MovieInfo("first-id", "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("second-id", "The Dark Knight", 2008, List.of("Christian Bale"), LocalDate.parse("2008-07-18"))
+        );
+        when(moviesInfoServiceMock.getMovieInfosByIds(List.of("first-id", "second-id")))
+                .thenReturn(Flux.fromIterable(movieInfos));
+
+        client
+                .post()
+                .uri("/v1/movieinfos/batch")
+                .bodyValue(List.of("first-id", "second-id"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
     @Test
     void addMovieInfo() {
         var movieInfo = new MovieInfo(null, "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
@@ -90,11 +137,91 @@ public class MoviesInfoControllerTests {
                 });
     }
 
+    @Test
+    void addMovieInfo_existingIdIsAConflict() {
+        var movieInfo = new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+        when(moviesInfoServiceMock.addMovieInfo(isA(MovieInfo.class)))
+                .thenReturn(Mono.error(new MovieInfoExistsException("specific-id")));
+
+        client
+                .post()
+                .uri("/v1/movieinfos")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(String.class)
+                .value(containsString("specific-id"));
+    }
+
+    @Test
+    void addMovieInfos_readsNdjsonUpload() {
+        var upload = String.join("\n",
+                "{\"name\": \"Batman Begins\", \"year\": 2005, \"cast\": [\"Christian Bale\"]}",
+                "{\"name\": \"The Dark Knight\", \"year\": 2008, \"cast\": [\"Christian Bale\"]}");
+        when(moviesInfoServiceMock.addMovieInfos(any(), any()))
+                .thenAnswer(invocation -> invocation.<Flux<BulkItem<MovieInfo>>>getArgument(0)
+                        .count()
+                        .map(count -> new BulkResult(count, count, 0, List.of())));
+
+        client
+                .post()
+                .uri("/v1/movieinfos/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(upload)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(BulkResult.class)
+                .consumeWith(bulkResultEntityExchangeResult -> {
+                    var result = bulkResultEntityExchangeResult.getResponseBody();
+                    assertThat(result.getReceived(), equalTo(2L));
+                    assertThat(result.getInserted(), equalTo(2L));
+                });
+    }
+
+    @Test
+    void addMovieInfos_malformedLineFailsOnlyThatItem() {
+        var upload = String.join("\n",
+                "{\"name\": \"Batman Begins\", \"year\": 2005, \"cast\": [\"Christian Bale\"]}",
+                "{\"name\": \"Broken\", \"year\": ",
+                "{\"name\": \"The Dark Knight\", \"year\": 2008, \"cast\": [\"Christian Bale\"]}");
+        when(moviesInfoServiceMock.addMovieInfos(any(), any()))
+                .thenAnswer(invocation -> invocation.<Flux<BulkItem<MovieInfo>>>getArgument(0)
+                        .reduce(new BulkResult(), (result, item) -> {
+                            result.setReceived(result.getReceived() + 1);
+                            if (item.getError() != null) {
+                                result.fail(item.getIndex(), item.getError());
+                            } else {
+                                result.setInserted(result.getInserted() + 1);
+                            }
+                            return result;
+                        }));
+
+        client
+                .post()
+                .uri("/v1/movieinfos/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(upload)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(BulkResult.class)
+                .consumeWith(bulkResultEntityExchangeResult -> {
+                    var result = bulkResultEntityExchangeResult.getResponseBody();
+                    assertThat(result.getReceived(), equalTo(3L));
+                    assertThat(result.getInserted(), equalTo(2L));
+                    assertThat(result.getErrors().size(), equalTo(1));
+                    assertThat(result.getErrors().get(0).getIndex(), equalTo(1L));
+                    assertThat(result.getErrors().get(0).getMessage(), startsWith("Malformed JSON"));
+                });
+    }
+
     @Test
     void updateMovieInfo() {
         var movieInfo = new MovieInfo(null, "New Title", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
-        var updatedMovieInfo = new MovieInfo("specific-id", "New Title", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
-        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class)))
+        var updatedMovieInfo = new MovieInfo("specific-id", "New Title", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 3L);
+        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class), isNull()))
                 .thenReturn(Mono.just(updatedMovieInfo));
 
         client
@@ -104,6 +231,8 @@ public class MoviesInfoControllerTests {
                 .exchange()
                 .expectStatus()
                 .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"3\"")
                 .expectBody(MovieInfo.class)
                 .consumeWith(movieInfoEntityExchangeResult -> {
                     var response = movieInfoEntityExchangeResult.getResponseBody();
@@ -112,9 +241,47 @@ public class MoviesInfoControllerTests {
                 });
     }
 
+    @Test
+    void updateMovieInfo_ifMatch() {
+        var movieInfo = new MovieInfo(null, "New Title", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+        var updatedMovieInfo = new MovieInfo("specific-id", "New Title", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 3L);
+        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class), any()))
+                .thenReturn(Mono.just(updatedMovieInfo));
+
+        client
+                .put()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .header(HttpHeaders.IF_MATCH, "\"2\", W/\"4\", \"5;name\"")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // weak ETags and ETags of projections match no version
+        verify(moviesInfoServiceMock).updateMovieInfo(isA(MovieInfo.class), isA(String.class), eq(List.of(2L)));
+    }
+
+    @Test
+    void updateMovieInfo_preconditionFailed() {
+        var movieInfo = new MovieInfo(null, "New Title", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class), any()))
+                .thenReturn(Mono.error(new PreconditionFailedException("specific-id")));
+
+        client
+                .put()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody(String.class)
+                .isEqualTo("Movie info specific-id is not at the version given by If-Match");
+    }
+
     @Test
     void deleteMovieInfo() {
-        when(moviesInfoServiceMock.deleteMovieInfo(isA(String.class)))
+        when(moviesInfoServiceMock.deleteMovieInfo(isA(String.class), isNull()))
                 .thenReturn(Mono.empty().ofType(Void.class));
 
         client
@@ -127,6 +294,40 @@ public class MoviesInfoControllerTests {
 
     }
 
+    @Test
+    void deleteMovieInfo_publishesDeleteEvent() {
+        when(moviesInfoServiceMock.deleteMovieInfo("deleted-id", null))
+                .thenReturn(Mono.empty().ofType(Void.class));
+        var deletes = movieInfoBroadcaster.events(null)
+                .filter(event -> Broadcaster.DELETE_EVENT.equals(event.event()))
+                .map(event -> event.data().getMovieInfoId());
+
+        StepVerifier.create(deletes)
+                .then(() -> client
+                        .delete()
+                        .uri("/v1/movieinfos/{id}", "deleted-id")
+                        .exchange()
+                        .expectStatus()
+                        .isNoContent())
+                .expectNext("deleted-id")
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void deleteMovieInfo_preconditionFailed() {
+        when(moviesInfoServiceMock.deleteMovieInfo("some-id", List.of(1L)))
+                .thenReturn(Mono.error(new PreconditionFailedException("some-id")));
+
+        client
+                .delete()
+                .uri("/v1/movieinfos/{id}", "some-id")
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
     @Test
     void addMovieInfo_validation_name() {
         var movieInfo = new MovieInfo(null, "", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
@@ -207,10 +408,112 @@ public class MoviesInfoControllerTests {
                 });
     }
 
+    @Test
+    void getMovieInfoById_smile() {
+        var movieInfo = new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+        when(moviesInfoServiceMock.getMovieInfoById("specific-id", Fields.ALL))
+                .thenReturn(Mono.just(movieInfo));
+
+        client
+                .get()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .accept(new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType("application/x-jackson-smile")
+                .expectBody(MovieInfo.class)
+                .isEqualTo(movieInfo);
+    }
+
+    @Test
+    void getMovieInfoById_eTag() {
+        var movieInfo = new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 3L);
+        when(moviesInfoServiceMock.getMovieInfoVersion("specific-id"))
+                .thenReturn(Mono.just(3L));
+        when(moviesInfoServiceMock.getMovieInfoById("specific-id", Fields.ALL))
+                .thenReturn(Mono.just(movieInfo));
+
+        client
+                .get()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectHeader()
+                .valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache");
+
+        client
+                .get()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        verify(moviesInfoServiceMock, times(1)).getMovieInfoById("specific-id", Fields.ALL);
+    }
+
+    @Test
+    void getMovieInfoById_eTagChanged() {
+        var movieInfo = new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 4L);
+        when(moviesInfoServiceMock.getMovieInfoVersion("specific-id"))
+                .thenReturn(Mono.just(4L));
+        when(moviesInfoServiceMock.getMovieInfoById("specific-id", Fields.ALL))
+                .thenReturn(Mono.just(movieInfo));
+
+        client
+                .get()
+                .uri("/v1/movieinfos/{id}", "specific-id")
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"4\"")
+                .expectBody(MovieInfo.class)
+                .value(response -> assertThat(response.getName(), equalTo("Dark Knight Rises")));
+    }
+
+    @Test
+    void getMovieInfoById_fields() {
+        var movieInfo = new MovieInfo("specific-id", "Dark Knight Rises", 2012, null, null);
+        when(moviesInfoServiceMock.getMovieInfoById("specific-id", new Fields(Set.of("name", "year"))))
+                .thenReturn(Mono.just(movieInfo));
+
+        client
+                .get()
+                .uri("/v1/movieinfos/{id}?fields=name, year", "specific-id")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$.cast").doesNotExist()
+                .jsonPath("$.release_date").doesNotExist();
+    }
+
+    @Test
+    void getMovieInfos_unknownField() {
+        client
+                .get()
+                .uri("/v1/movieinfos?fields=name,budget")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("Unknown field budget, expected any of [cast, movieInfoId, name, release_date, year]");
+    }
+
     @Test
     void getMovieInfosByYear() {
         var movieInfo = new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
-        when(moviesInfoServiceMock.getMovieInfosByYear(2012))
+        when(moviesInfoServiceMock.getMovieInfosByYear(2012, Fields.ALL))
                 .thenReturn(Flux.just(movieInfo));
 
         var uri = UriComponentsBuilder.fromUriString("/v1/movieinfos")
@@ -225,4 +528,66 @@ public class MoviesInfoControllerTests {
                 .expectBodyList(MovieInfo.class)
                 .hasSize(1);
     }
+
+    @Test
+    void getMovieInfosPage() {
+        var movieInfo = new MovieInfo("first-id", "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        when(moviesInfoServiceMock.getMovieInfosPage(null, null, 1, Fields.ALL))
+                .thenReturn(Mono.just(new KeysetPage<>(List.of(movieInfo), "first-id")));
+
+        client
+                .get()
+                .uri("/v1/movieinfos?limit=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(MoviesInfoController.NEXT_CURSOR_HEADER, "first-id")
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getMovieInfosPage_lastPage() {
+        var movieInfo = new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+        when(moviesInfoServiceMock.getMovieInfosPage(null, "first-id", 1000, Fields.ALL))
+                .thenReturn(Mono.just(new KeysetPage<>(List.of(movieInfo), null)));
+
+        client
+                .get()
+                .uri("/v1/movieinfos?after=first-id&limit=5000")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(MoviesInfoController.NEXT_CURSOR_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void streamMovieInfos() {
+        var movieInfos = List.of(
+                new MovieInfo("first-id", "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("specific-id", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"))
+        );
+        when(moviesInfoServiceMock.streamMovieInfos(null, 256, Fields.ALL))
+                .thenReturn(Flux.fromIterable(movieInfos));
+
+        var flux = client
+                .get()
+                .uri("/v1/movieinfos")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(flux)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
 }
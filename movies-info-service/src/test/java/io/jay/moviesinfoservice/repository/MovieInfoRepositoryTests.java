@@ -1,28 +1,38 @@
 package io.jay.moviesinfoservice.repository;
 
+import io.jay.moviescommon.configuration.MongoIndexInitializer;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviesinfoservice.configuration.MongoIndexConfiguration;
 import io.jay.moviesinfoservice.domain.MovieInfo;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
 @DataMongoTest
 @ExtendWith(SpringExtension.class)
+@Import(MongoIndexConfiguration.class)
 public class MovieInfoRepositoryTests {
 
     @Autowired
     MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    MongoIndexInitializer indexInitializer;
+
     @BeforeEach
     void setup() {
         var movieInfos = List.of(
@@ -91,6 +101,30 @@ public class MovieInfoRepositoryTests {
                 .verifyComplete();
     }
 
+    @Test
+    void updateMovieInfo_versioned() {
+        var changes = new MovieInfo(null, "The Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+
+        StepVerifier.create(movieInfoRepository.updateMovieInfo("specific-id", changes, List.of(0L)))
+                .assertNext(movieInfo -> {
+                    assertThat(movieInfo.getName(), equalTo("The Dark Knight Rises"));
+                    assertThat(movieInfo.getVersion(), equalTo(1L));
+                })
+                .verifyComplete();
+        StepVerifier.create(movieInfoRepository.updateMovieInfo("specific-id", changes, List.of(0L)))
+                .verifyComplete();
+    }
+
+    @Test
+    void deleteMovieInfo_versioned() {
+        StepVerifier.create(movieInfoRepository.deleteMovieInfo("specific-id", List.of(1L)))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(movieInfoRepository.deleteMovieInfo("specific-id", List.of(0L)))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
     @Test
     void findByYear() {
         var flux = movieInfoRepository.findByYear(2005);
@@ -106,4 +140,64 @@ public class MovieInfoRepositoryTests {
                 .expectNextCount(1)
                 .verifyComplete();
     }
+
+    @Test
+    void findMovieInfos_projected() {
+        StepVerifier.create(movieInfoRepository.findMovieInfos(2012, new Fields(Set.of("name"))))
+                .assertNext(movieInfo -> {
+                    assertThat(movieInfo.getMovieInfoId(), is(not(nullValue())));
+                    assertThat(movieInfo.getName(), equalTo("Dark Knight Rises"));
+                    assertThat(movieInfo.getYear(), is(nullValue()));
+                    assertThat(movieInfo.getCast(), is(nullValue()));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPage() {
+        var firstPage = movieInfoRepository.findPage(null, null, 2, Fields.ALL)
+                .collectList()
+                .block();
+        assertThat(firstPage.size(), equalTo(2));
+
+        var after = firstPage.get(1).getMovieInfoId();
+        StepVerifier.create(movieInfoRepository.findPage(null, after, 2, Fields.ALL))
+                .assertNext(movieInfo -> assertThat(firstPage, not(hasItem(movieInfo))))
+                .verifyComplete();
+    }
+
+    @Test
+    void findPage_byYear() {
+        StepVerifier.create(movieInfoRepository.findPage(2012, null, 2, Fields.ALL))
+                .assertNext(movieInfo -> assertThat(movieInfo.getName(), equalTo("Dark Knight Rises")))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAll() {
+        StepVerifier.create(movieInfoRepository.streamAll(null, 1, Fields.ALL), 1)
+                .expectNextCount(1)
+                .thenRequest(2)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void hotPathQueries_useAnIndex() {
+        for (var query : MongoIndexConfiguration.HOT_PATH_QUERIES) {
+            StepVerifier.create(indexInitializer.usesIndex(query))
+                    .expectNext(true)
+                    .as(query.getName())
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void unindexedQuery_isDetected() {
+        var query = new MongoIndexInitializer.HotPathQuery("findByCast", MovieInfo.class,
+                new Document("cast", "Christian Bale"), new Document());
+        StepVerifier.create(indexInitializer.usesIndex(query))
+                .expectNext(false)
+                .verifyComplete();
+    }
 }
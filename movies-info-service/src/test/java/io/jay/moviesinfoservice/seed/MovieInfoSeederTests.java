@@ -0,0 +1,50 @@
+package io.jay.moviesinfoservice.seed;
+
+import io.jay.moviesinfoservice.domain.MovieInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class MovieInfoSeederTests {
+
+    private static MovieInfoSeeder seeder(long seed) {
+        return new MovieInfoSeeder(null, null, 2500, seed, 1000, 4, true, 6, 50000, 1.1);
+    }
+
+    @Test
+    void batchesCoverEveryIdOnce() {
+        var seeder = seeder(42);
+
+        var ids = IntStream.range(0, 3)
+                .mapToObj(seeder::batch)
+                .flatMap(batch -> batch.stream().map(MovieInfo::getMovieInfoId))
+                .toArray();
+
+        assertThat(ids.length, equalTo(2500));
+        assertThat(ids[0], equalTo("1"));
+        assertThat(ids[2499], equalTo("2500"));
+    }
+
+    @Test
+    void sameSeedGivesSameMovieInfos() {
+        assertThat(seeder(42).batch(1), equalTo(seeder(42).batch(1)));
+        assertThat(seeder(42).movieInfo(7), not(equalTo(seeder(43).movieInfo(7))));
+    }
+
+    @Test
+    void movieInfosAreValidAndVaried() {
+        var movieInfos = seeder(42).batch(0);
+
+        var meanCastSize = movieInfos.stream().mapToInt(movieInfo -> movieInfo.getCast().size()).average().orElse(0);
+        assertThat(meanCastSize, closeTo(6, 1));
+        movieInfos.forEach(movieInfo -> {
+            assertThat(movieInfo.getName(), not(emptyOrNullString()));
+            assertThat(movieInfo.getCast(), not(empty()));
+            assertThat(movieInfo.getYear(), allOf(greaterThanOrEqualTo(1920), lessThanOrEqualTo(2024)));
+            assertThat(movieInfo.getRelease_date().getYear(), equalTo(movieInfo.getYear()));
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package io.jay.moviesloadtest;
+
+import io.jay.moviesinfoservice.domain.MovieInfo;
+import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.domain.ReviewStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Replaces whatever the services' collections hold with {@code movies} movie infos, ids {@code "1"}
+ * to {@code "<movies>"}, each with between zero and twice {@code reviewsPerMovie} reviews, and their stats.
+ * The data only depends on the settings, so runs with the same settings query the same documents.
+ */
+@Log4j2
+@RequiredArgsConstructor
+public class DataSeeder {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private final ApplicationContext infoContext;
+    private final ApplicationContext reviewContext;
+    private final LoadTestSettings settings;
+
+    public void seed() {
+        var random = new SplittableRandom(settings.getSeed());
+        var movieInfos = new ArrayList<MovieInfo>();
+        var reviews = new ArrayList<Review>();
+        var stats = new ArrayList<ReviewStats>();
+        for (long id = 1; id <= settings.getMovies(); id++) {
+            movieInfos.add(new MovieInfo(String.valueOf(id), "Movie " + id, 1950 + random.nextInt(75),
+                    List.of("Actor " + random.nextInt(500), "Actor " + random.nextInt(500)),
+                    LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27000))));
+
+            var movieStats = ReviewStats.empty(id);
+            var reviewCount = random.nextInt(2 * settings.getReviewsPerMovie() + 1);
+            for (int i = 0; i < reviewCount; i++) {
+                var rating = random.nextInt(11) / 2.0;
+                reviews.add(new Review(null, id, "Review " + i + " of movie " + id, rating));
+                movieStats.setCount(movieStats.getCount() + 1);
+                movieStats.setRatingCount(movieStats.getRatingCount() + 1);
+                movieStats.setRatingSum(movieStats.getRatingSum() + ReviewStats.ratingUnits(rating));
+                movieStats.getHistogram().merge(ReviewStats.bucketOf(rating), 1L, Long::sum);
+            }
+            stats.add(movieStats);
+        }
+
+        replace(infoContext.getBean(ReactiveMongoTemplate.class), MovieInfo.class, movieInfos);
+        var reviewTemplate = reviewContext.getBean(ReactiveMongoTemplate.class);
+        replace(reviewTemplate, Review.class, reviews);
+        replace(reviewTemplate, ReviewStats.class, stats);
+        log.info("Seeded {} movie infos, {} reviews", movieInfos.size(), reviews.size());
+    }
+
+    // remove rather than drop, so the indexes created at startup stay in place
+    private <T> void replace(ReactiveMongoTemplate template, Class<T> type, List<T> documents) {
+        template.remove(new Query(), type)
+                .thenMany(Flux.fromIterable(documents)
+                        .buffer(INSERT_BATCH_SIZE)
+                        .concatMap(batch -> template.insert(batch, type)))
+                .blockLast();
+    }
+}
@@ -0,0 +1,159 @@
+package io.jay.moviesloadtest;
+
+import io.jay.moviesloadtest.LoadTestSettings.RequestType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: request {@code i} is due at {@code start + i / rps} and is sent then, however many
+ * earlier requests are still outstanding. Latency is measured from the due time, not from when the request was
+ * actually sent, so a stalled generator or a full connection pool shows up in the percentiles instead of
+ * silently lowering the offered load.
+ */
+public class LoadGenerator {
+
+    private static final long CPU_SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final LoadTestSettings settings;
+    private final WebClient webClient;
+    private final SplittableRandom random;
+    private final RequestType[] types;
+    private final int[] cumulativeWeights;
+
+    public LoadGenerator(LoadTestSettings settings) {
+        this.settings = settings;
+        var connectionProvider = ConnectionProvider.builder("loadtest")
+                .maxConnections(settings.getMaxInFlight())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + settings.getMoviesPort() + "/v1/movies")
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        this.random = new SplittableRandom(settings.getSeed());
+        this.types = settings.getMix().keySet().toArray(RequestType[]::new);
+        this.cumulativeWeights = new int[types.length];
+        var total = 0;
+        for (int i = 0; i < types.length; i++) {
+            total += settings.getMix().get(types[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("loadtest.mix must have a positive weight");
+        }
+    }
+
+    /**
+     * Offers {@code rps} requests per second for {@code duration}, then waits for the outstanding ones.
+     */
+    public LoadReport run(Duration duration) {
+        var endpoints = new EnumMap<RequestType, LoadReport.Endpoint>(RequestType.class);
+        for (var type : types) {
+            endpoints.put(type, new LoadReport.Endpoint());
+        }
+        var inFlight = new AtomicInteger();
+        var peakInFlight = 0;
+        var maxScheduleLagNanos = 0L;
+        var cpuSamples = new ArrayList<Double>();
+        var operatingSystem = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        var intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) settings.getRps();
+        var total = (long) (duration.toNanos() / intervalNanos);
+        var start = System.nanoTime();
+        var nextCpuSample = start + CPU_SAMPLE_INTERVAL_NANOS;
+        var sent = 0L;
+        while (sent < total) {
+            var now = System.nanoTime();
+            var due = Math.min(total, (long) ((now - start) / intervalNanos) + 1);
+            for (; sent < due; sent++) {
+                var intended = start + (long) (sent * intervalNanos);
+                maxScheduleLagNanos = Math.max(maxScheduleLagNanos, now - intended);
+                var type = nextType();
+                var endpoint = endpoints.get(type);
+                if (inFlight.get() >= settings.getMaxInFlight()) {
+                    endpoint.outcome("dropped");
+                    continue;
+                }
+                peakInFlight = Math.max(peakInFlight, inFlight.incrementAndGet());
+                send(type, endpoint, intended, inFlight);
+            }
+            if (now >= nextCpuSample) {
+                cpuSamples.add(operatingSystem.getProcessCpuLoad());
+                nextCpuSample += CPU_SAMPLE_INTERVAL_NANOS;
+            }
+            var nextDue = start + (long) (sent * intervalNanos);
+            LockSupport.parkNanos(Math.max(0, Math.min(nextDue - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(1))));
+        }
+        var sendEnd = System.nanoTime();
+
+        var drainDeadline = sendEnd + settings.getRequestTimeout().toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        var meanCpu = cpuSamples.stream()
+                .filter(sample -> sample >= 0)
+                .mapToDouble(Double::doubleValue)
+                .average()
+                .orElse(-1);
+        return new LoadReport(settings.getRps(), duration, Duration.ofNanos(sendEnd - start), endpoints,
+                peakInFlight, Duration.ofNanos(maxScheduleLagNanos), meanCpu);
+    }
+
+    private void send(RequestType type, LoadReport.Endpoint endpoint, long intended, AtomicInteger inFlight) {
+        request(type)
+                .exchangeToMono(response -> response.releaseBody()
+                        .thenReturn(String.valueOf(response.rawStatusCode())))
+                .timeout(settings.getRequestTimeout())
+                .onErrorResume(ex -> Mono.just(ex instanceof TimeoutException ? "timeout" : "error"))
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe(outcome -> {
+                    endpoint.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+                    endpoint.outcome(outcome);
+                });
+    }
+
+    private WebClient.RequestHeadersSpec<?> request(RequestType type) {
+        switch (type) {
+            case MOVIE:
+                return webClient.get().uri("/{id}", nextMovieId());
+            case MOVIE_STATS:
+                return webClient.get().uri("/{id}?stats=true", nextMovieId());
+            case BATCH:
+                var ids = new ArrayList<String>(settings.getBatchSize());
+                for (int i = 0; i < settings.getBatchSize(); i++) {
+                    ids.add(nextMovieId());
+                }
+                return webClient.post().uri("/batch").bodyValue(ids);
+            default:
+                throw new IllegalArgumentException("Unknown request type " + type);
+        }
+    }
+
+    private RequestType nextType() {
+        var pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    private String nextMovieId() {
+        return String.valueOf(1 + random.nextInt(settings.getMovies()));
+    }
+}
@@ -0,0 +1,156 @@
+package io.jay.moviesloadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.jay.moviesloadtest.LoadTestSettings.RequestType;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of one load test phase: latency percentiles and outcomes per request type, plus the saturation
+ * signals that tell whether the numbers describe the services or the box they ran on.
+ * Latencies are reported in milliseconds.
+ */
+@Getter
+@RequiredArgsConstructor
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final int targetRps;
+    private final Duration duration;
+    private final Duration sendDuration;
+    private final Map<RequestType, Endpoint> endpoints;
+    private final int peakInFlight;
+    /**
+     * How late the generator sent its most delayed request. Large values mean the generator, not the services,
+     * was the bottleneck.
+     */
+    private final Duration maxScheduleLag;
+    /**
+     * Mean process CPU load of this JVM, services included, between 0 and 1; -1 when the JVM doesn't report it.
+     */
+    private final double meanProcessCpu;
+
+    public Map<String, Object> toMap() {
+        var all = new Histogram(3);
+        var outcomes = new TreeMap<String, Long>();
+        var perEndpoint = new LinkedHashMap<String, Object>();
+        endpoints.forEach((type, endpoint) -> {
+            all.add(endpoint.histogram);
+            endpoint.outcomes().forEach((outcome, count) -> outcomes.merge(outcome, count, Long::sum));
+            perEndpoint.put(type.name(), endpoint.toMap());
+        });
+        var offered = outcomes.values().stream().mapToLong(Long::longValue).sum();
+
+        var result = new LinkedHashMap<String, Object>();
+        result.put("targetRps", targetRps);
+        result.put("durationSeconds", duration.toMillis() / 1000.0);
+        result.put("offered", offered);
+        result.put("achievedRps", successes(outcomes) / (sendDuration.toNanos() / 1e9));
+        result.put("errorRate", offered == 0 ? 0 : (offered - successes(outcomes)) / (double) offered);
+        result.put("outcomes", outcomes);
+        result.put("latencyMs", latencies(all));
+        var saturation = new LinkedHashMap<String, Object>();
+        saturation.put("dropped", outcomes.getOrDefault("dropped", 0L));
+        saturation.put("peakInFlight", peakInFlight);
+        saturation.put("maxScheduleLagMs", maxScheduleLag.toNanos() / 1e6);
+        saturation.put("meanProcessCpu", meanProcessCpu);
+        result.put("saturation", saturation);
+        result.put("endpoints", perEndpoint);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void print(PrintStream out) {
+        var report = toMap();
+        var saturation = (Map<String, Object>) report.get("saturation");
+        out.printf("target %d rps for %ss: achieved %.1f rps, error rate %.2f%%%n",
+                targetRps, report.get("durationSeconds"), (double) report.get("achievedRps"),
+                100 * (double) report.get("errorRate"));
+        out.printf("saturation: dropped %s, peak in flight %d, max schedule lag %.1f ms, mean process cpu %.0f%%%n",
+                saturation.get("dropped"), peakInFlight, (double) saturation.get("maxScheduleLagMs"),
+                100 * meanProcessCpu);
+        out.printf("%-12s %8s %9s %9s %9s %9s %9s  %s%n", "", "count", "p50", "p90", "p99", "p99.9", "max", "outcomes");
+        endpoints.forEach((type, endpoint) -> printRow(out, type.name(), endpoint.histogram, endpoint.outcomes()));
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, Map<String, Long> outcomes) {
+        out.printf("%-12s %8d", name, histogram.getTotalCount());
+        for (var percentile : PERCENTILES) {
+            out.printf(" %9.2f", histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        out.printf(" %9.2f  %s%n", histogram.getMaxValue() / 1000.0, outcomes);
+    }
+
+    public void writeJson(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file.toFile(), toMap());
+    }
+
+    private static long successes(Map<String, Long> outcomes) {
+        return outcomes.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith("2"))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+
+    private static Map<String, Double> latencies(Histogram histogram) {
+        var latencies = new LinkedHashMap<String, Double>();
+        for (var percentile : PERCENTILES) {
+            latencies.put("p" + String.valueOf(percentile).replace(".0", "").replace(".", ""),
+                    histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        latencies.put("max", histogram.getMaxValue() / 1000.0);
+        return latencies;
+    }
+
+    /**
+     * Latencies in microseconds and outcome counts, keyed by HTTP status, {@code timeout}, {@code error}
+     * or {@code dropped}, of one request type.
+     */
+    public static class Endpoint {
+
+        private final ConcurrentHistogram histogram = new ConcurrentHistogram(3);
+        private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+        void record(long micros) {
+            histogram.recordValue(micros);
+        }
+
+        void outcome(String outcome) {
+            outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        }
+
+        Map<String, Long> outcomes() {
+            var counts = new TreeMap<String, Long>();
+            outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+            return counts;
+        }
+
+        Map<String, Object> toMap() {
+            var result = new LinkedHashMap<String, Object>();
+            result.put("count", histogram.getTotalCount());
+            result.put("latencyMs", latencies(histogram));
+            result.put("outcomes", outcomes());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.jay.moviesloadtest;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.nio.file.Path;
+
+/**
+ * Boots all three services in this JVM against one mongod, seeds them and drives open-model traffic
+ * at the movies service. Everything runs locally, so the numbers are for comparing builds on the same box.
+ */
+@Log4j2
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        var settings = LoadTestSettings.from(args);
+        try (var services = ServiceLauncher.start(settings)) {
+            new DataSeeder(services.getInfoContext(), services.getReviewContext(), settings).seed();
+
+            var generator = new LoadGenerator(settings);
+            log.info("Warming up for {}", settings.getWarmup());
+            generator.run(settings.getWarmup());
+            log.info("Measuring {} at {} rps", settings.getDuration(), settings.getRps());
+            var report = generator.run(settings.getDuration());
+
+            report.print(System.out);
+            var resultFile = Path.of(settings.getResultFile());
+            report.writeJson(resultFile);
+            log.info("Results written to {}", resultFile.toAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.jay.moviesloadtest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test knobs, bound from {@code --loadtest.*} arguments or {@code -Dloadtest.*} system properties.
+ */
+@Data
+public class LoadTestSettings {
+
+    /**
+     * Mongo to run against. When empty an embedded mongod is started on {@link #mongoPort}.
+     */
+    private String mongoUri;
+    private int mongoPort = 27117;
+    private int infoPort = 18080;
+    private int reviewPort = 18081;
+    private int moviesPort = 18082;
+
+    private int movies = 1000;
+    private int reviewsPerMovie = 20;
+    private long seed = 42;
+
+    /**
+     * Target arrival rate. Requests are sent on schedule whether or not earlier ones have completed.
+     */
+    private int rps = 200;
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration requestTimeout = Duration.ofSeconds(10);
+    /**
+     * Requests still in flight beyond this are not sent and are reported as dropped.
+     */
+    private int maxInFlight = 1000;
+    private int batchSize = 20;
+    private Map<RequestType, Integer> mix = new LinkedHashMap<>(Map.of(
+            RequestType.MOVIE, 80,
+            RequestType.MOVIE_STATS, 15,
+            RequestType.BATCH, 5));
+
+    private String resultFile = "target/loadtest-result.json";
+
+    public static LoadTestSettings from(String[] args) {
+        var environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        return Binder.get(environment)
+                .bind("loadtest", Bindable.ofInstance(new LoadTestSettings()))
+                .orElseGet(LoadTestSettings::new);
+    }
+
+    public enum RequestType {
+        MOVIE,
+        MOVIE_STATS,
+        BATCH
+    }
+}
@@ -0,0 +1,106 @@
+package io.jay.moviesloadtest;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodProcess;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import io.jay.moviesinfoservice.MoviesInfoServiceApplication;
+import io.jay.moviesreviewservice.MoviesReviewServiceApplication;
+import io.jay.moviesservice.MoviesServiceApplication;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts mongod, unless one is given, and the three services on their load test ports.
+ * <p>
+ * All three services ship an {@code application.yml} and only one of them would be visible on the shared
+ * classpath, so each service is pointed at its own {@code loadtest-*.yml} instead.
+ */
+@Log4j2
+@Getter
+public class ServiceLauncher implements AutoCloseable {
+
+    private static final String DATABASE = "movie";
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private MongodExecutable mongodExecutable;
+    private MongodProcess mongodProcess;
+    private ConfigurableApplicationContext infoContext;
+    private ConfigurableApplicationContext reviewContext;
+    private ConfigurableApplicationContext moviesContext;
+
+    private ServiceLauncher() {
+    }
+
+    public static ServiceLauncher start(LoadTestSettings settings) throws IOException {
+        var launcher = new ServiceLauncher();
+        try {
+            var mongoUri = launcher.startMongo(settings);
+            launcher.infoContext = launcher.boot(MoviesInfoServiceApplication.class, "loadtest-info",
+                    "--server.port=" + settings.getInfoPort(),
+                    "--spring.data.mongodb.uri=" + mongoUri);
+            launcher.reviewContext = launcher.boot(MoviesReviewServiceApplication.class, "loadtest-review",
+                    "--server.port=" + settings.getReviewPort(),
+                    "--spring.data.mongodb.uri=" + mongoUri);
+            launcher.moviesContext = launcher.boot(MoviesServiceApplication.class, "loadtest-movies",
+                    "--server.port=" + settings.getMoviesPort(),
+                    "--restClient.moviesInfoUrl=http://localhost:" + settings.getInfoPort() + "/v1/movieinfos",
+                    "--restClient.reviewsUrl=http://localhost:" + settings.getReviewPort() + "/v1/reviews");
+            return launcher;
+        } catch (RuntimeException | IOException ex) {
+            launcher.close();
+            throw ex;
+        }
+    }
+
+    private String startMongo(LoadTestSettings settings) throws IOException {
+        if (settings.getMongoUri() != null && !settings.getMongoUri().isBlank()) {
+            log.info("Using mongod at {}", settings.getMongoUri());
+            return settings.getMongoUri();
+        }
+        // the mongod binary is downloaded to ~/.embedmongo once and reused from there afterwards
+        var config = MongodConfig.builder()
+                .version(Version.Main.V4_0)
+                .net(new Net(settings.getMongoPort(), Network.localhostIsIPv6()))
+                .build();
+        mongodExecutable = MongodStarter.getDefaultInstance().prepare(config);
+        mongodProcess = mongodExecutable.start();
+        log.info("Started embedded mongod on port {}", settings.getMongoPort());
+        return "mongodb://localhost:" + settings.getMongoPort() + "/" + DATABASE;
+    }
+
+    private ConfigurableApplicationContext boot(Class<?> application, String configName, String... args) {
+        var allArgs = new ArrayList<>(List.of(args));
+        allArgs.add("--spring.config.name=" + configName);
+        var context = new SpringApplicationBuilder(application)
+                .bannerMode(Banner.Mode.OFF)
+                .registerShutdownHook(false)
+                .run(allArgs.toArray(String[]::new));
+        contexts.add(context);
+        log.info("Started {}", application.getSimpleName());
+        return context;
+    }
+
+    @Override
+    public void close() {
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            contexts.get(i).close();
+        }
+        if (mongodProcess != null) {
+            mongodProcess.stop();
+        }
+        if (mongodExecutable != null) {
+            mongodExecutable.stop();
+        }
+    }
+}
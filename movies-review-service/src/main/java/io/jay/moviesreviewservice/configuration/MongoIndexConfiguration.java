@@ -0,0 +1,37 @@
+package io.jay.moviesreviewservice.configuration;
+
+import io.jay.moviescommon.configuration.MongoIndexInitializer;
+import io.jay.moviescommon.configuration.MongoIndexInitializer.HotPathQuery;
+import io.jay.moviesreviewservice.domain.Review;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class MongoIndexConfiguration {
+
+    public static final List<HotPathQuery> HOT_PATH_QUERIES = List.of(
+            new HotPathQuery("findByMovieInfoId", Review.class,
+                    new Document("movieInfoId", 1L), new Document()),
+            new HotPathQuery("findByMovieInfoIdIn", Review.class,
+                    new Document("movieInfoId", new Document("$in", List.of(1L, 2L))), new Document()),
+            new HotPathQuery("findPage(movieInfoId)", Review.class,
+                    new Document("movieInfoId", 1L), new Document("_id", 1))
+    );
+
+    @Bean
+    public MongoIndexInitializer mongoIndexInitializer(ReactiveMongoTemplate template,
+                                                       MongoMappingContext mappingContext,
+                                                       @Value("${mongo.indexes.mode:CREATE}") MongoIndexInitializer.Mode mode,
+                                                       @Value("${mongo.indexes.failOnMissing:true}") boolean failOnMissing,
+                                                       @Value("${mongo.indexes.timeout:30s}") Duration timeout) {
+        return new MongoIndexInitializer(template, mappingContext, List.of(Review.class), HOT_PATH_QUERIES,
+                mode, failOnMissing, timeout);
+    }
+}
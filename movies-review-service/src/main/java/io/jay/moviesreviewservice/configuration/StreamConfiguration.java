@@ -0,0 +1,39 @@
+package io.jay.moviesreviewservice.configuration;
+
+import io.jay.moviescommon.stream.Broadcaster;
+import io.jay.moviescommon.stream.ChangeStreamFeed;
+import io.jay.moviesreviewservice.domain.Review;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class StreamConfiguration {
+
+    @Bean
+    public Broadcaster<Review> reviewBroadcaster(MeterRegistry meterRegistry,
+                                                 @Value("${reviews.broadcast.bufferSize:256}") int bufferSize,
+                                                 @Value("${reviews.broadcast.overflowPolicy:DROP_OLDEST}") Broadcaster.OverflowPolicy overflowPolicy,
+                                                 @Value("${reviews.broadcast.heartbeat:15s}") Duration heartbeat,
+                                                 @Value("${reviews.broadcast.replayCapacity:1024}") int replayCapacity) {
+        return new Broadcaster<>("reviews", meterRegistry, bufferSize, overflowPolicy, heartbeat, replayCapacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "reviews.broadcast.source", havingValue = "CHANGE_STREAM")
+    public ChangeStreamFeed<Review> reviewChangeStreamFeed(ReactiveMongoTemplate template,
+                                                           Broadcaster<Review> reviewBroadcaster,
+                                                           @Value("${reviews.broadcast.changeStream.tokenKey:reviews}") String tokenKey,
+                                                           @Value("${reviews.broadcast.changeStream.tokenSaveInterval:1s}") Duration tokenSaveInterval,
+                                                           @Value("${reviews.broadcast.changeStream.minBackoff:1s}") Duration minBackoff,
+                                                           @Value("${reviews.broadcast.changeStream.maxBackoff:1m}") Duration maxBackoff) {
+        return new ChangeStreamFeed<>(tokenKey, template, Review.class, List.of("insert"), reviewBroadcaster,
+                tokenSaveInterval, minBackoff, maxBackoff);
+    }
+}
@@ -0,0 +1,63 @@
+package io.jay.moviesreviewservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk upload. Items are identified by their zero-based position in the upload; only the first
+ * failures are listed, so the result stays small whatever the size of the upload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResult {
+
+    private long received;
+    private long inserted;
+    private long failed;
+    private List<ItemError> errors = new ArrayList<>();
+
+    public void fail(long index, String message) {
+        fail(index, message, null);
+    }
+
+    public void fail(long index, String message, List<Problem.FieldError> fieldErrors) {
+        failed++;
+        errors.add(new ItemError(index, message, fieldErrors));
+    }
+
+    /**
+     * Adds the counts and failures of {@code batch}, keeping at most {@code maxErrors} failures.
+     */
+    public BulkResult merge(BulkResult batch, int maxErrors) {
+        received += batch.received;
+        inserted += batch.inserted;
+        failed += batch.failed;
+        var room = Math.max(0, maxErrors - errors.size());
+        errors.addAll(batch.errors.subList(0, Math.min(room, batch.errors.size())));
+        return this;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ItemError {
+
+        private long index;
+        private String message;
+        /**
+         * The invalid fields of a review that failed validation.
+         */
+        private List<Problem.FieldError> fieldErrors;
+
+        public ItemError(long index, String message) {
+            this(index, message, null);
+        }
+    }
+}
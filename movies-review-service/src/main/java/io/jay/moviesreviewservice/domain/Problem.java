@@ -0,0 +1,40 @@
+package io.jay.moviesreviewservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * An error response body as described by RFC 7807, served as {@code application/problem+json}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Problem {
+
+    private String type;
+    private String title;
+    private int status;
+    private String detail;
+    /**
+     * The invalid fields of a rejected review, if that is what the problem is.
+     */
+    private List<FieldError> errors;
+
+    public Problem(String type, String title, int status, String detail) {
+        this(type, title, status, detail, null);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FieldError {
+
+        private String field;
+        private String message;
+    }
+}
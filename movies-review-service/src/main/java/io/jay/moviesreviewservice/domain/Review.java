@@ -1,20 +1,32 @@
 package io.jay.moviesreviewservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Document
+@CompoundIndex(name = "movieInfoId_id", def = "{'movieInfoId': 1, '_id': 1}")
 public class Review {
 
+    /**
+     * The properties callers may select with {@code fields=}.
+     */
+    public static final Set<String> FIELDS = Set.of("reviewId", "movieInfoId", "comment", "rating");
+
     @Id
     private String reviewId;
 
@@ -24,4 +36,13 @@ public class Review {
 
     @Min(value = 0L, message = "review.rating must be positive")
     private Double rating;
+
+    // bumped on every save; never taken from a request body
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public Review(String reviewId, Long movieInfoId, String comment, Double rating) {
+        this(reviewId, movieInfoId, comment, rating, null);
+    }
 }
@@ -0,0 +1,71 @@
+package io.jay.moviesreviewservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rating aggregate of one movie, kept up to date with {@code $inc} updates as reviews change.
+ * <ul>
+ *     <li>the rating sum is kept as a whole number of hundredths, so increments add up exactly however many are
+ *     applied, where a floating point sum would drift</li>
+ *     <li>the histogram is keyed by half-star bucket index, so key {@code "9"} counts ratings in [4.5, 5.0)</li>
+ *     <li>a review and its stats are written one after the other, not in a transaction: a failure in between leaves
+ *     the stats off by that review until they are reseeded</li>
+ * </ul>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class ReviewStats {
+
+    public static final long RATING_SCALE = 100;
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private long ratingCount;
+    @JsonIgnore
+    private long ratingSum;
+    private Map<String, Long> histogram = new HashMap<>();
+
+    public static ReviewStats empty(Long movieInfoId) {
+        return new ReviewStats(movieInfoId, 0, 0, 0, new HashMap<>());
+    }
+
+    public static String bucketOf(double rating) {
+        return String.valueOf((long) Math.floor(rating * 2));
+    }
+
+    /**
+     * @return {@code rating} in the units of {@link #getRatingSum()}
+     */
+    public static long ratingUnits(double rating) {
+        return Math.round(rating * RATING_SCALE);
+    }
+
+    // derived from ratingSum, not stored
+    @Transient
+    public double getSum() {
+        return (double) ratingSum / RATING_SCALE;
+    }
+
+    public void setSum(double sum) {
+        ratingSum = ratingUnits(sum);
+    }
+
+    /**
+     * @return the average of the rated reviews, or {@code null} when none is rated
+     */
+    public Double getMean() {
+        return ratingCount == 0 ? null : (double) ratingSum / RATING_SCALE / ratingCount;
+    }
+}
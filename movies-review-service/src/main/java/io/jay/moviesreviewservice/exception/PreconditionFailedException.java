@@ -0,0 +1,18 @@
+package io.jay.moviesreviewservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class PreconditionFailedException extends ProblemException {
+
+    public static final PreconditionFailedException VERSION_MISMATCH =
+            new PreconditionFailedException("The review is not at the version given by If-Match");
+
+    public PreconditionFailedException(String message) {
+        super(message, null);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.PRECONDITION_FAILED;
+    }
+}
@@ -0,0 +1,43 @@
+package io.jay.moviesreviewservice.exception;
+
+import io.jay.moviesreviewservice.domain.Problem;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An expected failure, answered with a 4xx problem rather than a 500.
+ * <ul>
+ *     <li>no stack trace is captured: for a rejected request, walking the stack costs more than the rest of it</li>
+ *     <li>without a stack there is nothing per throw in the exception, so failures without variable parts are
+ *     preallocated and shared</li>
+ *     <li>the encoded body is kept with the exception, so a shared one is only encoded once</li>
+ * </ul>
+ */
+public abstract class ProblemException extends RuntimeException {
+
+    private volatile byte[] body;
+
+    protected ProblemException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    public abstract HttpStatus getStatus();
+
+    /**
+     * @return the invalid fields, {@code null} unless the problem is about some
+     */
+    public List<Problem.FieldError> getErrors() {
+        return null;
+    }
+
+    public byte[] body(Function<ProblemException, byte[]> encoder) {
+        var encoded = body;
+        if (encoded == null) {
+            encoded = encoder.apply(this);
+            body = encoded;
+        }
+        return encoded;
+    }
+}
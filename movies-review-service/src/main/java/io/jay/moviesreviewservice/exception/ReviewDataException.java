@@ -1,10 +1,32 @@
 package io.jay.moviesreviewservice.exception;
 
-public class ReviewDataException extends RuntimeException {
-    private String message;
+import io.jay.moviesreviewservice.domain.Problem;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+public class ReviewDataException extends ProblemException {
+
+    public static final ReviewDataException MOVIE_INFO_ID_MISSING = new ReviewDataException("movieInfoId must be present");
+
+    private final List<Problem.FieldError> errors;
 
     public ReviewDataException(String message) {
-        super(message);
-        this.message = message;
+        this(message, null);
+    }
+
+    public ReviewDataException(String message, List<Problem.FieldError> errors) {
+        super(message, null);
+        this.errors = errors;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.BAD_REQUEST;
+    }
+
+    @Override
+    public List<Problem.FieldError> getErrors() {
+        return errors;
     }
 }
@@ -0,0 +1,15 @@
+package io.jay.moviesreviewservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ReviewExistsException extends ProblemException {
+
+    public ReviewExistsException(String id) {
+        super("Review " + id + " already exists, update it with PUT instead", null);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+}
@@ -1,17 +1,19 @@
 package io.jay.moviesreviewservice.exception;
 
-public class ReviewNotFoundException extends RuntimeException {
-    private String message;
-    private Throwable ex;
+import org.springframework.http.HttpStatus;
+
+public class ReviewNotFoundException extends ProblemException {
 
     public ReviewNotFoundException(String message, Throwable ex) {
         super(message, ex);
-        this.message = message;
-        this.ex = ex;
     }
 
     public ReviewNotFoundException(String message) {
-        super(message);
-        this.message = message;
+        super(message, null);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
     }
 }
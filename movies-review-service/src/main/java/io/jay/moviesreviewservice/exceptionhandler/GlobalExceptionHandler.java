@@ -1,29 +1,108 @@
 package io.jay.moviesreviewservice.exceptionhandler;
 
-import io.jay.moviesreviewservice.exception.ReviewDataException;
-import io.jay.moviesreviewservice.exception.ReviewNotFoundException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jay.moviescommon.exception.InvalidFieldsException;
+import io.jay.moviesreviewservice.domain.Problem;
+import io.jay.moviesreviewservice.exception.ProblemException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
-import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers errors with a problem ({@code application/problem+json}), or with the plain detail for clients that
+ * prefer {@code text/plain}. Expected failures are {@link ProblemException}s, whose bodies are encoded once per
+ * exception; anything else is logged and answered with a 500 that doesn't expose its message. It runs ahead of
+ * Boot's default handler, so unmatched routes are answered with a problem too.
+ */
 @Component
+@Order(-2)
+@RequiredArgsConstructor
+@Log4j2
 public class GlobalExceptionHandler implements ErrorWebExceptionHandler {
 
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    private static final List<MediaType> PRODUCIBLE = List.of(MediaType.APPLICATION_PROBLEM_JSON,
+            MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN);
+
+    private final ObjectMapper objectMapper;
+
     @Override
     public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
-        DataBufferFactory dataBufferFactory = exchange.getResponse().bufferFactory();
-        DataBuffer errorMessage = dataBufferFactory.wrap(ex.getMessage().getBytes());
-        if (ex instanceof ReviewDataException) {
-            exchange.getResponse().setStatusCode(HttpStatus.BAD_REQUEST);
-        } else if (ex instanceof ReviewNotFoundException) {
-            exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+        var response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.error(ex);
+        }
+        HttpStatus status;
+        String detail;
+        if (ex instanceof ProblemException) {
+            status = ((ProblemException) ex).getStatus();
+            detail = ex.getMessage();
+        } else if (ex instanceof InvalidFieldsException) {
+            status = HttpStatus.BAD_REQUEST;
+            detail = ex.getMessage();
+        } else if (ex instanceof ResponseStatusException) {
+            status = ((ResponseStatusException) ex).getStatus();
+            detail = ((ResponseStatusException) ex).getReason();
+        } else {
+            log.error("Failed to handle {} {}", exchange.getRequest().getMethod(), exchange.getRequest().getPath(), ex);
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            detail = null;
+        }
+
+        var mediaType = negotiate(exchange.getRequest().getHeaders().getAccept());
+        byte[] body;
+        if (mediaType.equals(MediaType.TEXT_PLAIN)) {
+            mediaType = TEXT_PLAIN_UTF8;
+            body = (detail != null ? detail : status.getReasonPhrase()).getBytes(StandardCharsets.UTF_8);
+        } else if (ex instanceof ProblemException) {
+            body = ((ProblemException) ex).body(problem -> encode(status, detail, problem.getErrors()));
         } else {
-            exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+            body = encode(status, detail, null);
+        }
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(mediaType);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    // errors are answered whatever the client accepts, with a problem when it accepts none of the types
+    private static MediaType negotiate(List<MediaType> accept) {
+        if (accept.isEmpty()) {
+            return MediaType.APPLICATION_PROBLEM_JSON;
+        }
+        var sorted = new ArrayList<>(accept);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        for (var acceptable : sorted) {
+            if (acceptable.getQualityValue() == 0) {
+                continue;
+            }
+            for (var producible : PRODUCIBLE) {
+                if (acceptable.isCompatibleWith(producible)) {
+                    return producible;
+                }
+            }
+        }
+        return MediaType.APPLICATION_PROBLEM_JSON;
+    }
+
+    private byte[] encode(HttpStatus status, String detail, List<Problem.FieldError> errors) {
+        try {
+            return objectMapper.writeValueAsBytes(new Problem("about:blank", status.getReasonPhrase(), status.value(), detail, errors));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
         }
-        return exchange.getResponse().writeWith(Mono.just(errorMessage));
     }
 }
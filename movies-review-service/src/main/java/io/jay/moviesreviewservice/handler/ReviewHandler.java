@@ -1,94 +1,324 @@
 package io.jay.moviesreviewservice.handler;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jay.moviescommon.domain.BulkItem;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviescommon.domain.KeysetPage;
+import io.jay.moviescommon.stream.Broadcaster;
+import io.jay.moviescommon.stream.EventSource;
+import io.jay.moviesreviewservice.domain.BulkResult;
 import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.domain.ReviewStats;
+import io.jay.moviesreviewservice.exception.PreconditionFailedException;
 import io.jay.moviesreviewservice.exception.ReviewDataException;
+import io.jay.moviesreviewservice.exception.ReviewExistsException;
 import io.jay.moviesreviewservice.repository.ReviewReactiveRepository;
+import io.jay.moviesreviewservice.repository.ReviewStatsRepository;
+import io.jay.moviesreviewservice.validation.ReviewValidator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
-import javax.validation.ConstraintViolation;
-import javax.validation.Validator;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class ReviewHandler {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
     private final ReviewReactiveRepository repository;
-    private final Validator validator;
-    private Sinks.Many<Review> reviewSink = Sinks.many().replay().latest();
+    private final ReviewStatsRepository statsRepository;
+    private final ReviewValidator reviewValidator;
+    private final Broadcaster<Review> reviewBroadcaster;
+    private final ObjectMapper objectMapper;
+
+    @Value("${reviews.page.maxLimit:1000}")
+    private int maxLimit;
+
+    @Value("${reviews.stream.batchSize:256}")
+    private int streamBatchSize;
+
+    @Value("${reviews.broadcast.source:LOCAL}")
+    private EventSource eventSource;
+
+    @Value("${reviews.bulk.batchSize:500}")
+    private int bulkBatchSize;
+
+    @Value("${reviews.bulk.concurrency:4}")
+    private int bulkConcurrency;
 
+    @Value("${reviews.bulk.maxErrors:100}")
+    private int bulkMaxErrors;
+
+    /**
+     * Only adds new reviews: with its version unset, saving one whose id is taken answers 409 instead of
+     * overwriting it.
+     */
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)
-                .doOnNext(this::validate)
-                .flatMap(repository::save)
-                .doOnNext(review -> {
-                    reviewSink.tryEmitNext(review);
-                })
+                .handle(reviewValidator::validate)
+                .flatMap(review -> repository.save(review)
+                        .onErrorMap(DuplicateKeyException.class, ex -> new ReviewExistsException(review.getReviewId())))
+                .flatMap(review -> statsRepository.applyChange(review.getMovieInfoId(), 1, null, review.getRating())
+                        .thenReturn(review))
+                .doOnNext(this::publish)
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
-    private void validate(Review review) {
-        Set<ConstraintViolation<Review>> violations = validator.validate(review);
-        if (violations.size() > 0) {
-            var message = violations.stream()
-                    .map(ConstraintViolation::getMessage)
-                    .sorted()
-                    .collect(Collectors.joining(", "));
-            throw new ReviewDataException(message);
+    // with a change stream every replica gets the event from Mongo instead
+    private void publish(Review review) {
+        if (eventSource == EventSource.LOCAL) {
+            reviewBroadcaster.emit(review);
+        }
+    }
+
+    /**
+     * Adds the reviews of a newline delimited JSON upload. The upload is read in batches of {@code bulkBatchSize},
+     * each stored with one unordered insert and one stats update, with at most {@code bulkConcurrency} batches in
+     * flight, so memory stays flat whatever the size of the upload. The upload is read one line at a time, so
+     * unreadable, invalid or rejected reviews don't stop the others; they are reported in the result.
+     */
+    public Mono<ServerResponse> addReviews(ServerRequest request) {
+        return BulkItem.<Review>fromNdjson(request.bodyToFlux(String.class), objectMapper.readerFor(Review.class))
+                .buffer(bulkBatchSize)
+                .flatMapSequential(this::addBatch, bulkConcurrency)
+                .reduceWith(BulkResult::new, (result, batch) -> result.merge(batch, bulkMaxErrors))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    private Mono<BulkResult> addBatch(List<BulkItem<Review>> batch) {
+        var result = new BulkResult();
+        result.setReceived(batch.size());
+        var indexes = new ArrayList<Long>(batch.size());
+        var reviews = new ArrayList<Review>(batch.size());
+        for (var item : batch) {
+            if (item.getError() != null) {
+                result.fail(item.getIndex(), item.getError());
+                continue;
+            }
+            var failure = reviewValidator.check(item.getValue());
+            if (failure != null) {
+                result.fail(item.getIndex(), failure.getMessage(), failure.getErrors());
+            } else {
+                indexes.add(item.getIndex());
+                reviews.add(item.getValue());
+            }
+        }
+        if (reviews.isEmpty()) {
+            return Mono.just(result);
         }
+        return repository.insertUnordered(reviews)
+                .flatMap(failures -> {
+                    var inserted = new ArrayList<Review>(reviews.size());
+                    for (int i = 0; i < reviews.size(); i++) {
+                        if (failures.containsKey(i)) {
+                            result.fail(indexes.get(i), failures.get(i));
+                        } else {
+                            inserted.add(reviews.get(i));
+                        }
+                    }
+                    result.setInserted(inserted.size());
+                    return statsRepository.applyAdded(inserted)
+                            .then(Mono.fromRunnable(() -> inserted.forEach(this::publish)))
+                            .thenReturn(result);
+                });
     }
 
     public Mono<ServerResponse> getReviews(ServerRequest request) {
-        var movieInfoId = request.queryParam("movieInfoId");
-        if (movieInfoId.isPresent()) {
-            return ServerResponse
-                    .ok()
-                    .body(repository.findByMovieInfoId(Long.valueOf(movieInfoId.get())), Review.class);
-        } else {
-            return ServerResponse
-                    .ok()
-                    .body(repository.findAll(), Review.class);
+        var movieInfoId = longParam(request, "movieInfoId");
+        var limit = intParam(request, "limit");
+        var after = request.queryParam("after");
+        var fields = fields(request);
+        if (limit != null || after.isPresent()) {
+            var pageSize = Math.max(1, Math.min(limit == null ? maxLimit : limit, maxLimit));
+            return getReviewsPage(movieInfoId, after.orElse(null), pageSize, fields)
+                    .flatMap(page -> {
+                        var response = ok(request);
+                        if (page.getNextCursor() != null) {
+                            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+                        }
+                        return response.bodyValue(page.getItems());
+                    });
+        }
+        return ok(request)
+                .body(repository.findReviews(movieInfoId, fields), Review.class);
+    }
+
+    /**
+     * The query parameter {@code name} as a number, {@code null} without one. A malformed one is the caller's
+     * mistake, so it is answered with a 400 rather than failing the request with a 500.
+     */
+    private static Long longParam(ServerRequest request, String name) {
+        var value = request.queryParam(name);
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.get());
+        } catch (NumberFormatException ex) {
+            throw new ReviewDataException(name + " must be a number");
         }
     }
 
+    private static Integer intParam(ServerRequest request, String name) {
+        var value = longParam(request, name);
+        if (value == null) {
+            return null;
+        }
+        if (value != value.intValue()) {
+            throw new ReviewDataException(name + " must be a number");
+        }
+        return value.intValue();
+    }
+
+    /**
+     * Functional endpoints write with the first codec that fits rather than negotiating, so the reads callers may
+     * want as Smile pick their content type from {@code Accept} here.
+     */
+    private static ServerResponse.BodyBuilder ok(ServerRequest request) {
+        var accept = new ArrayList<>(request.headers().accept());
+        MediaType.sortBySpecificityAndQuality(accept);
+        var smile = accept.stream()
+                .filter(mediaType -> mediaType.getQualityValue() > 0)
+                .findFirst()
+                .filter(mediaType -> mediaType.isCompatibleWith(APPLICATION_SMILE) && !mediaType.isWildcardSubtype())
+                .isPresent();
+        return ServerResponse.ok()
+                .contentType(smile ? APPLICATION_SMILE : MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT);
+    }
+
+    private static Fields fields(ServerRequest request) {
+        return Fields.parse(request.queryParam("fields").orElse(null), Review.FIELDS);
+    }
+
+    /**
+     * Fetches one extra review to tell whether there is a next page.
+     */
+    private Mono<KeysetPage<Review>> getReviewsPage(Long movieInfoId, String after, int limit, Fields fields) {
+        return repository.findPage(movieInfoId, after, limit + 1, fields)
+                .collectList()
+                .map(reviews -> {
+                    if (reviews.size() <= limit) {
+                        return new KeysetPage<>(reviews, null);
+                    }
+                    var page = reviews.subList(0, limit);
+                    return new KeysetPage<>(page, page.get(limit - 1).getReviewId());
+                });
+    }
+
+    /**
+     * Streams reviews as newline delimited JSON. Demand from the client drives the Mongo cursor,
+     * so at most a few batches are held in memory.
+     */
+    public Mono<ServerResponse> streamReviews(ServerRequest request) {
+        var movieInfoId = longParam(request, "movieInfoId");
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(repository.streamAll(movieInfoId, streamBatchSize, fields(request)), Review.class);
+    }
+
+    public Mono<ServerResponse> getReviewsByMovieInfoIds(ServerRequest request) {
+        return request.bodyToFlux(Long.class)
+                .collectList()
+                .flatMap(movieInfoIds -> ok(request)
+                        .body(repository.findByMovieInfoIdIn(movieInfoIds), Review.class));
+    }
+
+    public Mono<ServerResponse> getReviewStats(ServerRequest request) {
+        var id = longParam(request, "movieInfoId");
+        if (id == null) {
+            return Mono.error(ReviewDataException.MOVIE_INFO_ID_MISSING);
+        }
+        return statsRepository.findById(id)
+                .defaultIfEmpty(ReviewStats.empty(id))
+                .flatMap(ok(request)::bodyValue);
+    }
+
+    /**
+     * Updates the review in one round trip, so concurrent updates can't overwrite each other's reads. With
+     * {@code If-Match}, only updates it if it is still at the version of one of the ETags, and answers 412 otherwise.
+     */
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         String id = request.pathVariable("id");
-        var existingReview = repository.findById(id);
-                /* option 1 for handling 404 */
-                // .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for " + id)));
-
-        return existingReview
-                .flatMap(review -> request.bodyToMono(Review.class)
-                        .map(req -> {
-                            review.setComment(req.getComment());
-                            review.setRating(req.getRating());
-                            return review;
-                        })
-                        .flatMap(repository::save)
-                        .flatMap(ServerResponse.ok()::bodyValue))
-                /* option 2 for handling 404 */
-                .switchIfEmpty(ServerResponse.notFound().build());
+        var versions = ifMatchVersions(request.headers().asHttpHeaders());
+        return request.bodyToMono(Review.class)
+                .flatMap(changes -> repository.updateReview(id, changes.getComment(), changes.getRating(), versions)
+                        .flatMap(previous -> {
+                            var version = previous.getVersion() == null ? 1L : previous.getVersion() + 1;
+                            var updated = new Review(id, previous.getMovieInfoId(), changes.getComment(),
+                                    changes.getRating(), version);
+                            return statsRepository
+                                    .applyChange(updated.getMovieInfoId(), 0, previous.getRating(), updated.getRating())
+                                    .thenReturn(updated);
+                        }))
+                .flatMap(updated -> ServerResponse.ok()
+                        .eTag(eTag(updated.getVersion()))
+                        .bodyValue(updated))
+                .switchIfEmpty(Mono.defer(() -> versions == null
+                        ? ServerResponse.notFound().build()
+                        : Mono.error(PreconditionFailedException.VERSION_MISMATCH)));
     }
 
+    /**
+     * Deletes the review in one round trip. With {@code If-Match}, only deletes it if it is still at the version of
+     * one of the ETags, and answers 412 otherwise.
+     */
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         String id = request.pathVariable("id");
-        var existingReview = repository.findById(id);
-        return existingReview
-                .flatMap(review -> repository.deleteById(id))
-                .then(ServerResponse.noContent().build());
+        var versions = ifMatchVersions(request.headers().asHttpHeaders());
+        return repository.deleteReview(id, versions)
+                .flatMap(review -> statsRepository.applyChange(review.getMovieInfoId(), -1, review.getRating(), null)
+                        .thenReturn(review))
+                .hasElement()
+                .flatMap(deleted -> deleted || versions == null
+                        ? ServerResponse.noContent().build()
+                        : Mono.error(PreconditionFailedException.VERSION_MISMATCH));
+    }
+
+    private static String eTag(Long version) {
+        return "\"" + (version == null ? 0 : version) + "\"";
+    }
+
+    /**
+     * The versions named by {@code If-Match}, {@code null} without one or with {@code *}. If-Match compares
+     * strongly, so weak ETags match no version.
+     */
+    private static List<Long> ifMatchVersions(HttpHeaders headers) {
+        var ifMatch = headers.getIfMatch();
+        if (ifMatch.isEmpty() || ifMatch.contains("*")) {
+            return null;
+        }
+        var versions = new ArrayList<Long>(ifMatch.size());
+        for (var eTag : ifMatch) {
+            if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+                try {
+                    versions.add(Long.valueOf(eTag.substring(1, eTag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        return versions;
     }
 
     public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
+        var lastEventId = request.headers().firstHeader(Broadcaster.LAST_EVENT_ID_HEADER);
         return ServerResponse.ok()
                 .contentType(MediaType.TEXT_EVENT_STREAM)
-                .body(reviewSink.asFlux(), Review.class);
+                .body(reviewBroadcaster.serverSentEvents(lastEventId), new ParameterizedTypeReference<ServerSentEvent<Review>>() {
+                });
     }
 }
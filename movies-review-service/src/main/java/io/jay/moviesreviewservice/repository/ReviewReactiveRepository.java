@@ -4,6 +4,9 @@ import io.jay.moviesreviewservice.domain.Review;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+import java.util.Collection;
+
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewReactiveRepositoryCustom {
     Flux<Review> findByMovieInfoId(Long movieInfoId);
+    Flux<Review> findByMovieInfoIdIn(Collection<Long> movieInfoIds);
 }
@@ -0,0 +1,55 @@
+package io.jay.moviesreviewservice.repository;
+
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviesreviewservice.domain.Review;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ReviewReactiveRepositoryCustom {
+
+    /**
+     * @param movieInfoId optional filter
+     */
+    Flux<Review> findReviews(Long movieInfoId, Fields fields);
+
+    /**
+     * Reviews sorted by {@code _id}, starting right after {@code after}.
+     *
+     * @param movieInfoId optional filter
+     * @param after       optional cursor, the {@code _id} of the last review already seen
+     */
+    Flux<Review> findPage(Long movieInfoId, String after, int limit, Fields fields);
+
+    /**
+     * All reviews sorted by {@code _id}, fetched from the cursor {@code batchSize} documents at a time
+     * as the subscriber requests them.
+     */
+    Flux<Review> streamAll(Long movieInfoId, int batchSize, Fields fields);
+
+    /**
+     * Inserts {@code reviews} with one unordered {@code insertMany}, so a failing document doesn't stop the others.
+     * Documents without an id get one first.
+     *
+     * @return the reason of every failed insert, by position in {@code reviews}
+     */
+    Mono<Map<Integer, String>> insertUnordered(List<Review> reviews);
+
+    /**
+     * Sets the comment and rating of a review and bumps its version with one {@code findAndModify}.
+     *
+     * @param versions optional, the versions the review has to be at for the update to apply
+     * @return the review as it was before the update, for the stats; empty if none matched
+     */
+    Mono<Review> updateReview(String id, String comment, Double rating, List<Long> versions);
+
+    /**
+     * Deletes a review with one {@code findAndDelete}.
+     *
+     * @param versions optional, the versions the review has to be at for the delete to apply
+     * @return the deleted review, for the stats; empty if none matched
+     */
+    Mono<Review> deleteReview(String id, List<Long> versions);
+}
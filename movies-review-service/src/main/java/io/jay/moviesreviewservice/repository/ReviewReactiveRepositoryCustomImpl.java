@@ -0,0 +1,124 @@
+package io.jay.moviesreviewservice.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviesreviewservice.domain.Review;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ReviewReactiveRepositoryCustomImpl implements ReviewReactiveRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Flux<Review> findReviews(Long movieInfoId, Fields fields) {
+        return template.find(fields.applyTo(filter(movieInfoId, null)), Review.class);
+    }
+
+    @Override
+    public Flux<Review> findPage(Long movieInfoId, String after, int limit, Fields fields) {
+        var query = filter(movieInfoId, after)
+                .with(Sort.by("_id"))
+                .limit(limit);
+        return template.find(fields.applyTo(query), Review.class);
+    }
+
+    @Override
+    public Flux<Review> streamAll(Long movieInfoId, int batchSize, Fields fields) {
+        var query = filter(movieInfoId, null)
+                .with(Sort.by("_id"))
+                .cursorBatchSize(batchSize);
+        return template.find(fields.applyTo(query), Review.class);
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertUnordered(List<Review> reviews) {
+        var documents = reviews.stream()
+                .map(review -> {
+                    if (review.getReviewId() == null) {
+                        review.setReviewId(new ObjectId().toHexString());
+                    }
+                    // what the first save would set
+                    if (review.getVersion() == null) {
+                        review.setVersion(0L);
+                    }
+                    var document = new Document();
+                    template.getConverter().write(review, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+        return template.getCollection(template.getCollectionName(Review.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> ex.getWriteErrors().isEmpty()
+                        ? Mono.error(ex)
+                        : Mono.just(ex.getWriteErrors().stream()
+                                .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))));
+    }
+
+    @Override
+    public Mono<Review> updateReview(String id, String comment, Double rating, List<Long> versions) {
+        var update = new Update()
+                .set("comment", comment)
+                .set("rating", rating)
+                .inc("version", 1);
+        return template.findAndModify(versioned(id, versions), update, FindAndModifyOptions.options().returnNew(false),
+                Review.class);
+    }
+
+    @Override
+    public Mono<Review> deleteReview(String id, List<Long> versions) {
+        return template.findAndRemove(versioned(id, versions), Review.class);
+    }
+
+    // reviews stored before they had a version are served as version 0
+    private Query versioned(String id, List<Long> versions) {
+        var criteria = where("_id").is(id);
+        if (versions != null) {
+            criteria = versions.contains(0L)
+                    ? criteria.orOperator(where("version").in(versions), where("version").exists(false))
+                    : criteria.and("version").in(versions);
+        }
+        return Query.query(criteria);
+    }
+
+    private Query filter(Long movieInfoId, String after) {
+        var criteria = new Criteria();
+        if (movieInfoId != null) {
+            criteria = criteria.and("movieInfoId").is(movieInfoId);
+        }
+        if (after != null) {
+            criteria = criteria.andOperator(afterId(after));
+        }
+        return Query.query(criteria);
+    }
+
+    // generated ids are ObjectIds, which sort after every string id such as "specific-id"
+    private Criteria afterId(String after) {
+        if (ObjectId.isValid(after)) {
+            return where("_id").gt(new ObjectId(after));
+        }
+        return new Criteria().orOperator(
+                where("_id").gt(after),
+                where("_id").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+}
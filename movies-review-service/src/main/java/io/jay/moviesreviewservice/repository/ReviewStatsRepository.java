@@ -0,0 +1,7 @@
+package io.jay.moviesreviewservice.repository;
+
+import io.jay.moviesreviewservice.domain.ReviewStats;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReviewStatsRepository extends ReactiveMongoRepository<ReviewStats, Long>, ReviewStatsRepositoryCustom {
+}
@@ -0,0 +1,23 @@
+package io.jay.moviesreviewservice.repository;
+
+import io.jay.moviesreviewservice.domain.Review;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface ReviewStatsRepositoryCustom {
+
+    /**
+     * Applies a review change to the stats of a movie in a single atomic upsert.
+     *
+     * @param countDelta    +1 for an added review, -1 for a deleted one, 0 for an update
+     * @param removedRating rating that no longer counts, if any
+     * @param addedRating   rating that now counts, if any
+     */
+    Mono<Void> applyChange(Long movieInfoId, int countDelta, Double removedRating, Double addedRating);
+
+    /**
+     * Adds new reviews to the stats with one unordered bulk write holding a single upsert per movie.
+     */
+    Mono<Void> applyAdded(Collection<Review> reviews);
+}
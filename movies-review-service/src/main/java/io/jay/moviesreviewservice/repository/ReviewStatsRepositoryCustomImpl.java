@@ -0,0 +1,89 @@
+package io.jay.moviesreviewservice.repository;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.domain.ReviewStats;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class ReviewStatsRepositoryCustomImpl implements ReviewStatsRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Void> applyChange(Long movieInfoId, int countDelta, Double removedRating, Double addedRating) {
+        var delta = new Delta();
+        delta.count += countDelta;
+        delta.rating(removedRating, -1);
+        delta.rating(addedRating, 1);
+        return template.upsert(query(where("_id").is(movieInfoId)), delta.toUpdate(), ReviewStats.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> applyAdded(Collection<Review> reviews) {
+        var deltas = new HashMap<Long, Delta>();
+        reviews.forEach(review -> {
+            var delta = deltas.computeIfAbsent(review.getMovieInfoId(), movieInfoId -> new Delta());
+            delta.count++;
+            delta.rating(review.getRating(), 1);
+        });
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        var upserts = deltas.entrySet().stream()
+                .map(entry -> new UpdateOneModel<Document>(new Document("_id", entry.getKey()),
+                        entry.getValue().toUpdate().getUpdateObject(), new UpdateOptions().upsert(true)))
+                .collect(Collectors.toList());
+        return template.getCollection(template.getCollectionName(ReviewStats.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(upserts, new BulkWriteOptions().ordered(false))))
+                .then();
+    }
+
+    /**
+     * The increments to apply to the stats of one movie.
+     */
+    private static class Delta {
+
+        private long count;
+        private long ratingCount;
+        private long ratingSum;
+        private final Map<String, Long> histogram = new HashMap<>();
+
+        void rating(Double rating, int sign) {
+            if (rating == null) {
+                return;
+            }
+            ratingCount += sign;
+            ratingSum += sign * ReviewStats.ratingUnits(rating);
+            histogram.merge(ReviewStats.bucketOf(rating), (long) sign, Long::sum);
+        }
+
+        Update toUpdate() {
+            var update = new Update()
+                    .inc("count", count)
+                    .inc("ratingCount", ratingCount)
+                    .inc("ratingSum", ratingSum);
+            histogram.forEach((bucket, delta) -> {
+                if (delta != 0) {
+                    update.inc("histogram." + bucket, delta);
+                }
+            });
+            return update;
+        }
+    }
+}
@@ -3,9 +3,12 @@ package io.jay.moviesreviewservice.router;
 import io.jay.moviesreviewservice.handler.ReviewHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RequestPredicates.headers;
 import static org.springframework.web.reactive.function.server.RequestPredicates.path;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 
@@ -18,7 +21,12 @@ public class ReviewRouter {
                 .nest(path("/v1/reviews"), builder -> {
                     builder
                             .POST("", reviewHandler::addReview)
+                            // accept() would also match */*, the stream is only for clients that ask for it
+                            .GET("", headers(h -> h.accept().contains(MediaType.APPLICATION_NDJSON)), reviewHandler::streamReviews)
                             .GET("", reviewHandler::getReviews)
+                            .POST("/bulk", contentType(MediaType.APPLICATION_NDJSON), reviewHandler::addReviews)
+                            .POST("/batch", reviewHandler::getReviewsByMovieInfoIds)
+                            .GET("/stats", reviewHandler::getReviewStats)
                             .PUT("/{id}", reviewHandler::updateReview)
                             .DELETE("/{id}", reviewHandler::deleteReview)
                             .GET("/stream", reviewHandler::getReviewsStream)
@@ -0,0 +1,161 @@
+package io.jay.moviesreviewservice.seed;
+
+import io.jay.moviescommon.seed.ZipfSampler;
+import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.domain.ReviewStats;
+import io.jay.moviesreviewservice.repository.ReviewReactiveRepository;
+import io.jay.moviesreviewservice.repository.ReviewStatsRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the collection with {@code reviews.seed.reviews} synthetic reviews of the movies {@code 1} to
+ * {@code reviews.seed.movies}, and their stats, when the {@code seed} profile is active.
+ * <ul>
+ *     <li>reviews per movie follow a Zipf distribution, movie {@code 1} being the most reviewed</li>
+ *     <li>every movie has a quality its ratings cluster around, and ratings lean towards the top of the scale</li>
+ *     <li>every batch only depends on {@code seed} and its position, review ids included, so the data is the same
+ *     on every run however the batches interleave</li>
+ * </ul>
+ * Seeding starts once the application is ready and runs in the background, {@code concurrency} batches at a time.
+ */
+@Component
+@Profile("seed")
+@Log4j2
+public class ReviewSeeder {
+
+    private static final double MEAN_QUALITY = 3.6;
+    private static final double QUALITY_SPREAD = 0.6;
+    private static final double RATING_SPREAD = 1.0;
+    // 2020-09-13, the timestamp part of the generated review ids
+    private static final int ID_TIMESTAMP = 1_600_000_000;
+    private static final String[] COMMENTS = {"Loved it", "Great cast", "Too long", "Would watch again",
+            "Fell asleep", "A classic", "Overrated", "Better than the book", "Stunning visuals", "Weak ending"};
+
+    private final ReactiveMongoTemplate template;
+    private final ReviewReactiveRepository repository;
+    private final ReviewStatsRepository statsRepository;
+    private final long reviews;
+    private final long seed;
+    private final long baseSeed;
+    private final int batchSize;
+    private final int concurrency;
+    private final boolean replace;
+    private final ZipfSampler movieSampler;
+    private volatile Disposable subscription;
+
+    public ReviewSeeder(ReactiveMongoTemplate template,
+                        ReviewReactiveRepository repository,
+                        ReviewStatsRepository statsRepository,
+                        @Value("${reviews.seed.movies:10000}") int movies,
+                        @Value("${reviews.seed.reviews:1000000}") long reviews,
+                        @Value("${reviews.seed.seed:42}") long seed,
+                        @Value("${reviews.seed.batchSize:1000}") int batchSize,
+                        @Value("${reviews.seed.concurrency:4}") int concurrency,
+                        @Value("${reviews.seed.replace:true}") boolean replace,
+                        @Value("${reviews.seed.zipfExponent:1.0}") double zipfExponent) {
+        this.template = template;
+        this.repository = repository;
+        this.statsRepository = statsRepository;
+        this.reviews = reviews;
+        this.seed = seed;
+        this.baseSeed = new SplittableRandom(seed).nextLong();
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.replace = replace;
+        this.movieSampler = new ZipfSampler(movies, zipfExponent);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        log.info("Seeding {} reviews with seed {}", reviews, seed);
+        var started = System.nanoTime();
+        var inserted = new AtomicLong();
+        var batches = (reviews + batchSize - 1) / batchSize;
+        // remove rather than drop, so the indexes created at startup stay in place
+        var clear = replace
+                ? template.remove(new Query(), Review.class).then(template.remove(new Query(), ReviewStats.class)).then()
+                : Mono.<Void>empty();
+        subscription = clear
+                .thenMany(Flux.range(0, (int) batches))
+                .flatMap(batch -> {
+                    var batchReviews = batch(batch);
+                    return repository.insertUnordered(batchReviews)
+                            .flatMap(failures -> {
+                                var stored = new ArrayList<Review>(batchReviews.size());
+                                for (int i = 0; i < batchReviews.size(); i++) {
+                                    if (!failures.containsKey(i)) {
+                                        stored.add(batchReviews.get(i));
+                                    }
+                                }
+                                return statsRepository.applyAdded(stored)
+                                        .thenReturn(stored.size());
+                            });
+                }, concurrency)
+                .doOnNext(count -> {
+                    var total = inserted.addAndGet(count);
+                    if ((total - count) * 10 / reviews != total * 10 / reviews) {
+                        log.info("Seeded {} of {} reviews", total, reviews);
+                    }
+                })
+                .then(Mono.fromRunnable(() -> log.info("Seeded {} reviews in {} ms", inserted.get(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))))
+                .onErrorResume(ex -> {
+                    log.error("Seeding reviews failed", ex);
+                    return Mono.empty();
+                })
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    List<Review> batch(int batch) {
+        var random = new SplittableRandom(baseSeed ^ batch);
+        var first = (long) batch * batchSize;
+        var last = Math.min(reviews, first + batchSize);
+        var batchReviews = new ArrayList<Review>((int) (last - first));
+        for (long index = first; index < last; index++) {
+            var movieInfoId = (long) movieSampler.sample(random);
+            var comment = COMMENTS[random.nextInt(COMMENTS.length)];
+            batchReviews.add(new Review(reviewId(index), movieInfoId, comment, rating(movieInfoId, random)));
+        }
+        return batchReviews;
+    }
+
+    // ObjectIds that sort in the order the reviews were generated
+    private static String reviewId(long index) {
+        return String.format("%08x%016x", ID_TIMESTAMP, index);
+    }
+
+    // half stars from 0.5 to 5, around the quality of the movie; clamping piles the good ones up at 5
+    private double rating(long movieInfoId, SplittableRandom random) {
+        var quality = MEAN_QUALITY + QUALITY_SPREAD * gaussian(new SplittableRandom(~baseSeed ^ movieInfoId));
+        var rating = Math.round((quality + RATING_SPREAD * gaussian(random)) * 2) / 2.0;
+        return Math.max(0.5, Math.min(5.0, rating));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+}
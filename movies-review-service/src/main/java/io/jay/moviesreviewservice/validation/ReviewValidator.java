@@ -0,0 +1,259 @@
+package io.jay.moviesreviewservice.validation;
+
+import io.jay.moviesreviewservice.domain.Problem;
+import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.exception.ReviewDataException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SynchronousSink;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Null;
+import javax.validation.groups.Default;
+import javax.validation.metadata.ConstraintDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Validates reviews against their Bean Validation constraints without going through the validator for each review.
+ * <ul>
+ *     <li>the constraints of {@link Review} are read once, and the common ones ({@code @NotNull}, {@code @Null},
+ *     {@code @Min}, {@code @Max}, {@code @NotBlank}) with literal messages are compiled into plain checks</li>
+ *     <li>a valid review is checked without allocating</li>
+ *     <li>violations are reported as field errors, and the exception for a combination of violated checks is built
+ *     once and shared</li>
+ *     <li>any other constraint is left to the validator, property by property</li>
+ * </ul>
+ */
+@Component
+public class ReviewValidator {
+
+    private static final int MAX_CHECKS = Long.SIZE;
+
+    private final Validator validator;
+    // sorted by message, so errors come out in the order the validator's messages used to be joined in
+    private final Check[] checks;
+    private final String[] uncompiledProperties;
+    private final boolean uncompiledBean;
+    private final Map<Long, ReviewDataException> exceptions = new ConcurrentHashMap<>();
+    private final Function<Long, ReviewDataException> newException = violated -> exception(errors(violated));
+
+    public ReviewValidator(Validator validator) {
+        this.validator = validator;
+        var descriptor = validator.getConstraintsForClass(Review.class);
+        var compiled = new ArrayList<Check>();
+        var uncompiled = new ArrayList<String>();
+        for (var property : descriptor.getConstrainedProperties()) {
+            var name = property.getPropertyName();
+            var getter = getter(name);
+            var compiledAll = !property.isCascaded() && getter != null;
+            for (var constraint : property.getConstraintDescriptors()) {
+                var test = compiledAll ? compile(constraint, property.getElementClass()) : null;
+                if (test == null || compiled.size() == MAX_CHECKS) {
+                    compiledAll = false;
+                } else {
+                    compiled.add(new Check(name, (String) constraint.getMessageTemplate(), getter, test));
+                }
+            }
+            if (!compiledAll) {
+                // the validator checks every constraint of the property, compiled or not
+                compiled.removeIf(check -> check.field.equals(name));
+                uncompiled.add(name);
+            }
+        }
+        compiled.sort(Comparator.comparing(check -> check.message));
+        this.checks = compiled.toArray(Check[]::new);
+        this.uncompiledProperties = uncompiled.toArray(String[]::new);
+        this.uncompiledBean = !descriptor.getConstraintDescriptors().isEmpty();
+    }
+
+    /**
+     * Passes valid reviews on and fails with a {@link ReviewDataException} on the others, for {@code handle}.
+     */
+    public void validate(Review review, SynchronousSink<Review> sink) {
+        var failure = check(review);
+        if (failure != null) {
+            sink.error(failure);
+        } else {
+            sink.next(review);
+        }
+    }
+
+    /**
+     * @return why {@code review} is invalid, {@code null} if it is valid
+     */
+    public ReviewDataException check(Review review) {
+        long violated = 0;
+        for (int i = 0; i < checks.length; i++) {
+            if (!checks[i].test(review)) {
+                violated |= 1L << i;
+            }
+        }
+        if (uncompiledProperties.length > 0 || uncompiledBean) {
+            var violations = uncompiledViolations(review);
+            if (!violations.isEmpty()) {
+                var errors = errors(violated);
+                for (var violation : violations) {
+                    errors.add(new Problem.FieldError(violation.getPropertyPath().toString(), violation.getMessage()));
+                }
+                errors.sort(Comparator.comparing(Problem.FieldError::getMessage));
+                return exception(errors);
+            }
+        }
+        if (violated == 0) {
+            return null;
+        }
+        return exceptions.computeIfAbsent(violated, newException);
+    }
+
+    private Set<ConstraintViolation<Review>> uncompiledViolations(Review review) {
+        if (uncompiledBean) {
+            // class level constraints need the whole bean, and then the validator sees every property anyway
+            var violations = validator.validate(review);
+            violations.removeIf(violation -> isCompiled(violation.getPropertyPath().toString()));
+            return violations;
+        }
+        Set<ConstraintViolation<Review>> violations = Set.of();
+        for (var property : uncompiledProperties) {
+            var propertyViolations = validator.validateProperty(review, property);
+            if (!propertyViolations.isEmpty()) {
+                if (violations.isEmpty()) {
+                    violations = new HashSet<>();
+                }
+                violations.addAll(propertyViolations);
+            }
+        }
+        return violations;
+    }
+
+    private boolean isCompiled(String property) {
+        for (var check : checks) {
+            if (check.field.equals(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Problem.FieldError> errors(long violated) {
+        var errors = new ArrayList<Problem.FieldError>();
+        for (int i = 0; i < checks.length; i++) {
+            if ((violated & 1L << i) != 0) {
+                errors.add(new Problem.FieldError(checks[i].field, checks[i].message));
+            }
+        }
+        return errors;
+    }
+
+    private static ReviewDataException exception(List<Problem.FieldError> errors) {
+        var message = errors.stream()
+                .map(Problem.FieldError::getMessage)
+                .collect(Collectors.joining(", "));
+        return new ReviewDataException(message, List.copyOf(errors));
+    }
+
+    private static MethodHandle getter(String property) {
+        var descriptor = BeanUtils.getPropertyDescriptor(Review.class, property);
+        if (descriptor == null || descriptor.getReadMethod() == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup()
+                    .unreflect(descriptor.getReadMethod())
+                    .asType(MethodType.methodType(Object.class, Review.class));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the test for {@code constraint}, {@code null} when it has to be left to the validator
+     */
+    private static Predicate<Object> compile(ConstraintDescriptor<?> constraint, Class<?> type) {
+        var groups = constraint.getGroups();
+        if (!constraint.getComposingConstraints().isEmpty()
+                || !(groups.isEmpty() || groups.equals(Set.of(Default.class)))
+                || constraint.getMessageTemplate().contains("{")) {
+            return null;
+        }
+        var annotation = constraint.getAnnotation();
+        if (annotation instanceof NotNull) {
+            return value -> value != null;
+        }
+        if (annotation instanceof Null) {
+            return value -> value == null;
+        }
+        if (annotation instanceof NotBlank && type == String.class) {
+            return value -> value != null && !value.toString().trim().isEmpty();
+        }
+        if (annotation instanceof Min) {
+            var min = ((Min) annotation).value();
+            if (isIntegral(type)) {
+                return value -> value == null || ((Number) value).longValue() >= min;
+            }
+            if (isFloatingPoint(type)) {
+                // NaN is out of range, as it is for the validator
+                return value -> value == null || ((Number) value).doubleValue() >= min;
+            }
+        }
+        if (annotation instanceof Max) {
+            var max = ((Max) annotation).value();
+            if (isIntegral(type)) {
+                return value -> value == null || ((Number) value).longValue() <= max;
+            }
+            if (isFloatingPoint(type)) {
+                return value -> value == null || ((Number) value).doubleValue() <= max;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIntegral(Class<?> type) {
+        return type == Long.class || type == Integer.class || type == Short.class || type == Byte.class;
+    }
+
+    private static boolean isFloatingPoint(Class<?> type) {
+        return type == Double.class || type == Float.class;
+    }
+
+    private static class Check {
+
+        private final String field;
+        private final String message;
+        private final MethodHandle getter;
+        private final Predicate<Object> test;
+
+        Check(String field, String message, MethodHandle getter, Predicate<Object> test) {
+            this.field = field;
+            this.message = message;
+            this.getter = getter;
+            this.test = test;
+        }
+
+        boolean test(Review review) {
+            try {
+                return test.test((Object) getter.invokeExact(review));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
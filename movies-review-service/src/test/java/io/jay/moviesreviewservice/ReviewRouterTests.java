@@ -1,32 +1,56 @@
 package io.jay.moviesreviewservice;
 
+import io.jay.moviescommon.configuration.CodecConfiguration;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviesreviewservice.configuration.StreamConfiguration;
+import io.jay.moviesreviewservice.domain.BulkResult;
+import io.jay.moviesreviewservice.domain.Problem;
 import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.domain.ReviewStats;
 import io.jay.moviesreviewservice.exceptionhandler.GlobalExceptionHandler;
 import io.jay.moviesreviewservice.handler.ReviewHandler;
 import io.jay.moviesreviewservice.repository.ReviewReactiveRepository;
+import io.jay.moviesreviewservice.repository.ReviewStatsRepository;
 import io.jay.moviesreviewservice.router.ReviewRouter;
+import io.jay.moviesreviewservice.validation.ReviewValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
 @AutoConfigureWebTestClient
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalExceptionHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, ReviewValidator.class,
+        GlobalExceptionHandler.class, StreamConfiguration.class, CodecConfiguration.class, SimpleMeterRegistry.class})
 public class ReviewRouterTests {
 
     @MockBean
     ReviewReactiveRepository repository;
 
+    @MockBean
+    ReviewStatsRepository statsRepository;
+
     @Autowired
     WebTestClient client;
 
@@ -37,6 +61,8 @@ public class ReviewRouterTests {
 
         when(repository.save(review))
                 .thenReturn(Mono.just(new Review("id", 1L, "Good movie", 7.5)));
+        when(statsRepository.applyChange(1L, 1, null, 7.5))
+                .thenReturn(Mono.empty());
 
 
         client
@@ -53,9 +79,94 @@ public class ReviewRouterTests {
                 });
     }
 
+    @Test
+    void addReview_existingIdIsAConflict() {
+        var review = new Review("taken", 1L, "Good movie", 7.5);
+        when(repository.save(review))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error")));
+
+        client
+                .post()
+                .uri("/v1/reviews")
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(Problem.class)
+                .consumeWith(problemEntityExchangeResult -> {
+                    var problem = problemEntityExchangeResult.getResponseBody();
+                    assertThat(problem.getStatus(), equalTo(409));
+                    assertThat(problem.getDetail(), containsString("taken"));
+                });
+    }
+
+    @Test
+    void addReviews_reportsInvalidAndRejectedReviews() {
+        var upload = String.join("\n",
+                "{\"movieInfoId\": 1, \"comment\": \"Good movie\", \"rating\": 7.5}",
+                "{\"comment\": \"No movie\", \"rating\": 5.0}",
+                "{\"reviewId\": \"taken\", \"movieInfoId\": 2, \"comment\": \"Great movie\", \"rating\": 9.0}");
+        when(repository.insertUnordered(anyList()))
+                .thenReturn(Mono.just(Map.of(1, "duplicate key")));
+        when(statsRepository.applyAdded(anyCollection()))
+                .thenReturn(Mono.empty());
+
+
+        client
+                .post()
+                .uri("/v1/reviews/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(upload)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(BulkResult.class)
+                .consumeWith(bulkResultEntityExchangeResult -> {
+                    var result = bulkResultEntityExchangeResult.getResponseBody();
+                    assertThat(result.getReceived(), equalTo(3L));
+                    assertThat(result.getInserted(), equalTo(1L));
+                    assertThat(result.getFailed(), equalTo(2L));
+                    assertThat(result.getErrors(), contains(
+                            new BulkResult.ItemError(1, "review.movieInfoId must not be null",
+                                    List.of(new Problem.FieldError("movieInfoId", "review.movieInfoId must not be null"))),
+                            new BulkResult.ItemError(2, "duplicate key")));
+                });
+    }
+
+    @Test
+    void addReviews_malformedLineFailsOnlyThatReview() {
+        var upload = String.join("\n",
+                "{\"movieInfoId\": 1, \"comment\": \"Good movie\", \"rating\": 7.5}",
+                "{\"movieInfoId\": 1, \"comment\": ",
+                "{\"movieInfoId\": 2, \"comment\": \"Great movie\", \"rating\": 9.0}");
+        when(repository.insertUnordered(anyList()))
+                .thenReturn(Mono.just(Map.of()));
+        when(statsRepository.applyAdded(anyCollection()))
+                .thenReturn(Mono.empty());
+
+        client
+                .post()
+                .uri("/v1/reviews/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(upload)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(BulkResult.class)
+                .consumeWith(bulkResultEntityExchangeResult -> {
+                    var result = bulkResultEntityExchangeResult.getResponseBody();
+                    assertThat(result.getReceived(), equalTo(3L));
+                    assertThat(result.getInserted(), equalTo(2L));
+                    assertThat(result.getFailed(), equalTo(1L));
+                    assertThat(result.getErrors().size(), equalTo(1));
+                    assertThat(result.getErrors().get(0).getIndex(), equalTo(1L));
+                    assertThat(result.getErrors().get(0).getMessage(), startsWith("Malformed JSON"));
+                });
+    }
+
     @Test
     void getReviews() {
-        when(repository.findAll())
+        when(repository.findReviews(null, Fields.ALL))
                 .thenReturn(Flux.just(new Review("id", 1L, "Good movie", 7.5)));
 
 
@@ -72,12 +183,11 @@ public class ReviewRouterTests {
     @Test
     void updateReview() {
         var requestBody = new Review(null, null, "Great movie", 9.5);
-        var existingReview = new Review("id", 1L, "Good movie", 7.5);
-        var updatedReview = new Review("id", 1L, "Great movie", 9.5);
-        when(repository.findById("id"))
-                .thenReturn(Mono.just(existingReview));
-        when(repository.save(updatedReview))
-                .thenReturn(Mono.just(updatedReview));
+        var previousReview = new Review("id", 1L, "Good movie", 7.5, 2L);
+        when(repository.updateReview("id", "Great movie", 9.5, null))
+                .thenReturn(Mono.just(previousReview));
+        when(statsRepository.applyChange(1L, 0, 7.5, 9.5))
+                .thenReturn(Mono.empty());
 
 
         client
@@ -87,21 +197,58 @@ public class ReviewRouterTests {
                 .exchange()
                 .expectStatus()
                 .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"3\"")
                 .expectBody(Review.class)
                 .consumeWith(reviewEntityExchangeResult -> {
                     var response = reviewEntityExchangeResult.getResponseBody();
+                    assertThat(response.getMovieInfoId(), equalTo(1L));
                     assertThat(response.getRating(), equalTo(9.5));
                     assertThat(response.getComment(), equalTo("Great movie"));
                 });
     }
 
+    @Test
+    void updateReview_notFound() {
+        when(repository.updateReview("id", "Great movie", 9.5, null))
+                .thenReturn(Mono.empty());
+
+        client
+                .put()
+                .uri("/v1/reviews/{id}", "id")
+                .bodyValue(new Review(null, null, "Great movie", 9.5))
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void updateReview_preconditionFailed() {
+        // weak ETags match no version
+        when(repository.updateReview("id", "Great movie", 9.5, List.of(2L)))
+                .thenReturn(Mono.empty());
+
+        client
+                .put()
+                .uri("/v1/reviews/{id}", "id")
+                .header(HttpHeaders.IF_MATCH, "\"2\", W/\"3\"")
+                .bodyValue(new Review(null, null, "Great movie", 9.5))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(412);
+    }
+
     @Test
     void deleteReview() {
-        var existingReview = new Review("id", 1L, "Good movie", 7.5);
-        when(repository.findById("id"))
-                .thenReturn(Mono.just(existingReview));
-        when(repository.deleteById("id"))
-                .thenReturn(Mono.empty().ofType(Void.class));
+        var deletedReview = new Review("id", 1L, "Good movie", 7.5);
+        when(repository.deleteReview("id", null))
+                .thenReturn(Mono.just(deletedReview));
+        when(statsRepository.applyChange(1L, -1, 7.5, null))
+                .thenReturn(Mono.empty());
 
 
         client
@@ -112,10 +259,24 @@ public class ReviewRouterTests {
                 .isNoContent();
     }
 
+    @Test
+    void deleteReview_preconditionFailed() {
+        when(repository.deleteReview("id", List.of(1L)))
+                .thenReturn(Mono.empty());
+
+        client
+                .delete()
+                .uri("/v1/reviews/{id}", "id")
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
     @Test
     void getReviews_byMovieInfoId() {
         var existingReview = new Review("id", 1L, "Good movie", 7.5);
-        when(repository.findByMovieInfoId(1L))
+        when(repository.findReviews(1L, Fields.ALL))
                 .thenReturn(Flux.just(existingReview));
 
 
@@ -132,6 +293,288 @@ public class ReviewRouterTests {
                 .hasSize(1);
     }
 
+    @Test
+    void getReviews_smile() {
+        var review = new Review("id", 1L, "Good movie", 7.5);
+        when(repository.findReviews(1L, Fields.ALL))
+                .thenReturn(Flux.just(review));
+
+        client
+                .get()
+                .uri("/v1/reviews?movieInfoId=1")
+                .accept(new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType("application/x-jackson-smile")
+                .expectBodyList(Review.class)
+                .contains(review);
+    }
+
+    @Test
+    void getReviews_fields() {
+        when(repository.findReviews(1L, new Fields(Set.of("rating"))))
+                .thenReturn(Flux.just(new Review("id", null, null, 7.5)));
+
+        client
+                .get()
+                .uri("/v1/reviews?movieInfoId=1&fields=rating")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$[0].rating").isEqualTo(7.5)
+                .jsonPath("$[0].comment").doesNotExist();
+    }
+
+    @Test
+    void getReviews_unknownField() {
+        client
+                .get()
+                .uri("/v1/reviews?fields=rating,author")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.title").isEqualTo("Bad Request")
+                .jsonPath("$.detail").isEqualTo("Unknown field author, expected any of [comment, movieInfoId, rating, reviewId]");
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds() {
+        when(repository.findByMovieInfoIdIn(List.of(1L, 2L)))
+                .thenReturn(Flux.just(
+                        new Review("first-id", 1L, "Good movie", 7.5),
+                        new Review("second-id", 2L, "Bad movie", 2.5)));
+
+
+        client
+                .post()
+                .uri("/v1/reviews/batch")
+                .bodyValue(List.of(1L, 2L))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviews_page() {
+        when(repository.findPage(1L, null, 2, Fields.ALL))
+                .thenReturn(Flux.just(
+                        new Review("first-id", 1L, "Good movie", 7.5),
+                        new Review("second-id", 1L, "Bad movie", 2.5)));
+
+
+        client
+                .get()
+                .uri("/v1/reviews?movieInfoId=1&limit=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(ReviewHandler.NEXT_CURSOR_HEADER, "first-id")
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviews_lastPage() {
+        when(repository.findPage(null, "first-id", 1001, Fields.ALL))
+                .thenReturn(Flux.just(new Review("second-id", 1L, "Bad movie", 2.5)));
+
+
+        client
+                .get()
+                .uri("/v1/reviews?after=first-id&limit=5000")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(ReviewHandler.NEXT_CURSOR_HEADER)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void streamReviews() {
+        when(repository.streamAll(1L, 256, Fields.ALL))
+                .thenReturn(Flux.just(
+                        new Review("first-id", 1L, "Good movie", 7.5),
+                        new Review("second-id", 1L, "Bad movie", 2.5)));
+
+
+        var flux = client
+                .get()
+                .uri("/v1/reviews?movieInfoId=1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        StepVerifier.create(flux)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void getReviewStats() {
+        when(statsRepository.findById(1L))
+                .thenReturn(Mono.just(new ReviewStats(1L, 2, 2, 1650, Map.of("15", 1L, "18", 1L))));
+
+
+        client
+                .get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/reviews/stats")
+                        .queryParam("movieInfoId", 1L)
+                        .build())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.mean").isEqualTo(8.25)
+                .jsonPath("$.sum").isEqualTo(16.5)
+                .jsonPath("$.ratingSum").doesNotExist()
+                .jsonPath("$.histogram.15").isEqualTo(1);
+    }
+
+    @Test
+    void getReviewStats_noReviews() {
+        when(statsRepository.findById(1L))
+                .thenReturn(Mono.empty());
+
+
+        client
+                .get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/reviews/stats")
+                        .queryParam("movieInfoId", 1L)
+                        .build())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0)
+                .jsonPath("$.mean").doesNotExist();
+    }
+
+    @Test
+    void getReviewStats_withoutMovieInfoId() {
+        client
+                .get()
+                .uri("/v1/reviews/stats")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("movieInfoId must be present");
+    }
+
+    @Test
+    void getReviewStats_withoutMovieInfoId_plainText() {
+        client
+                .get()
+                .uri("/v1/reviews/stats")
+                .accept(MediaType.TEXT_PLAIN)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectHeader()
+                .contentType("text/plain;charset=UTF-8")
+                .expectBody(String.class)
+                .isEqualTo("movieInfoId must be present");
+    }
+
+    @Test
+    void getReviews_malformedMovieInfoId() {
+        client
+                .get()
+                .uri("/v1/reviews?movieInfoId=abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("movieInfoId must be a number");
+    }
+
+    @Test
+    void getReviews_malformedLimit() {
+        client
+                .get()
+                .uri("/v1/reviews?limit=x")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("limit must be a number");
+    }
+
+    @Test
+    void streamReviews_malformedMovieInfoId() {
+        client
+                .get()
+                .uri("/v1/reviews?movieInfoId=abc")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewStats_malformedMovieInfoId() {
+        client
+                .get()
+                .uri("/v1/reviews/stats?movieInfoId=abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("movieInfoId must be a number");
+    }
+
+    @Test
+    void unknownRoute_notFound() {
+        client
+                .get()
+                .uri("/v1/unknown")
+                .exchange()
+                .expectStatus()
+                .isNotFound()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404);
+    }
+
+    @Test
+    void unexpectedError_hidesMessage() {
+        when(repository.findReviews(1L, Fields.ALL))
+                .thenReturn(Flux.error(new IllegalStateException("connection string with credentials")));
+
+        client
+                .get()
+                .uri("/v1/reviews?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is5xxServerError()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Internal Server Error")
+                .jsonPath("$.detail").doesNotExist();
+    }
+
     @Test
     void addReview_validation() {
         var review = new Review(null, null, "Good movie", -1.0);
@@ -144,7 +587,29 @@ public class ReviewRouterTests {
                 .exchange()
                 .expectStatus()
                 .isBadRequest()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("review.movieInfoId must not be null, review.rating must be positive")
+                .jsonPath("$.errors[0].field").isEqualTo("movieInfoId")
+                .jsonPath("$.errors[0].message").isEqualTo("review.movieInfoId must not be null")
+                .jsonPath("$.errors[1].field").isEqualTo("rating")
+                .jsonPath("$.errors[1].message").isEqualTo("review.rating must be positive");
+    }
+
+    @Test
+    void addReview_validation_utf8() {
+        var review = new Review(null, 1L, "Très bon film", -1.0);
+
+        client
+                .post()
+                .uri("/v1/reviews")
+                .bodyValue(review)
+                .accept(MediaType.TEXT_PLAIN)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
                 .expectBody(String.class)
-                .isEqualTo("review.movieInfoId must not be null, review.rating must be positive");
+                .isEqualTo("review.rating must be positive");
     }
 }
@@ -0,0 +1,110 @@
+package io.jay.moviesreviewservice;
+
+import io.jay.moviescommon.stream.Broadcaster;
+import io.jay.moviescommon.stream.StreamResumeToken;
+import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.repository.ReviewReactiveRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Change streams need a replica set, so this runs against a single node replica set.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=4.0.21",
+        "spring.mongodb.embedded.storage.repl-set-name=rs0",
+        "reviews.broadcast.source=CHANGE_STREAM",
+        "reviews.broadcast.changeStream.tokenSaveInterval=100ms"
+})
+public class ReviewsChangeStreamIT {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    ReviewReactiveRepository repository;
+
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll().block();
+    }
+
+    private Flux<ServerSentEvent<Review>> stream(String lastEventId) {
+        return client.get()
+                .uri("/v1/reviews/stream")
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set(Broadcaster.LAST_EVENT_ID_HEADER, lastEventId);
+                    }
+                })
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Review>>() {
+                })
+                .getResponseBody()
+                .filter(event -> event.data() != null);
+    }
+
+    private ServerSentEvent<Review> awaitEvent(String comment) {
+        return stream(null)
+                .filter(event -> comment.equals(event.data().getComment()))
+                .blockFirst(TIMEOUT);
+    }
+
+    @Test
+    void streamsReviewsWrittenOutsideThisReplica() {
+        // written straight to Mongo, as another replica would
+        repository.save(new Review(null, 1L, "Awesome movie", 9.0)).block();
+
+        var event = awaitEvent("Awesome movie");
+
+        assertThat(event.data().getReviewId(), is(not(nullValue())));
+        assertThat(Long.parseLong(event.id()), is(greaterThan(0L)));
+    }
+
+    @Test
+    void resumesAfterLastEventId() {
+        repository.save(new Review(null, 1L, "Good movie", 7.0)).block();
+        var first = awaitEvent("Good movie");
+        repository.save(new Review(null, 1L, "Great movie", 8.0)).block();
+        awaitEvent("Great movie");
+
+        var resumed = stream(first.id()).blockFirst(TIMEOUT);
+
+        assertThat(resumed.data().getComment(), equalTo("Great movie"));
+    }
+
+    @Test
+    void savesResumeToken() {
+        repository.save(new Review(null, 2L, "Best movie", 9.5)).block();
+        awaitEvent("Best movie");
+
+        var token = template.findById("reviews", StreamResumeToken.class)
+                .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(100)))
+                .block(TIMEOUT);
+
+        assertThat(token.getToken(), is(not(emptyOrNullString())));
+    }
+}
@@ -1,24 +1,35 @@
 package io.jay.moviesreviewservice;
 
+import io.jay.moviesreviewservice.domain.BulkResult;
+import io.jay.moviesreviewservice.domain.Problem;
 import io.jay.moviesreviewservice.domain.Review;
+import io.jay.moviesreviewservice.domain.ReviewStats;
+import io.jay.moviesreviewservice.handler.ReviewHandler;
 import io.jay.moviesreviewservice.repository.ReviewReactiveRepository;
+import io.jay.moviesreviewservice.repository.ReviewStatsRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.test.StepVerifier;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 public class ReviewsIT {
 
     @Autowired
@@ -27,6 +38,9 @@ public class ReviewsIT {
     @Autowired
     ReviewReactiveRepository repository;
 
+    @Autowired
+    ReviewStatsRepository statsRepository;
+
     @BeforeEach
     void setup() {
         var reviews = List.of(
@@ -40,6 +54,7 @@ public class ReviewsIT {
     @AfterEach
     void tearDown() {
         repository.deleteAll().block();
+        statsRepository.deleteAll().block();
     }
 
     @Test
@@ -59,6 +74,58 @@ public class ReviewsIT {
                 });
     }
 
+    @Test
+    void addReview_existingIdIsAConflict() {
+        var review = new Review("specific-id", 3L, "Overwrite", 1.0);
+        client
+                .post()
+                .uri("/v1/reviews")
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        StepVerifier.create(repository.findById("specific-id"))
+                .assertNext(stored -> assertThat(stored.getComment(), equalTo("Best movie")))
+                .verifyComplete();
+    }
+
+    @Test
+    void addReviews_bulk() {
+        var upload = String.join("\n",
+                "{\"movieInfoId\": 4, \"comment\": \"Good movie\", \"rating\": 7.5}",
+                "{\"movieInfoId\": 4, \"comment\": \"Negative\", \"rating\": -1.0}",
+                "{\"reviewId\": \"specific-id\", \"movieInfoId\": 4, \"comment\": \"Duplicate\", \"rating\": 5.0}",
+                "{\"movieInfoId\": 4, \"comment\": \"Great movie\", \"rating\": 9.0}");
+
+        client
+                .post()
+                .uri("/v1/reviews/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(upload)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(BulkResult.class)
+                .consumeWith(result -> {
+                    var bulkResult = result.getResponseBody();
+                    assertThat(bulkResult.getReceived(), equalTo(4L));
+                    assertThat(bulkResult.getInserted(), equalTo(2L));
+                    assertThat(bulkResult.getFailed(), equalTo(2L));
+                    assertThat(bulkResult.getErrors().get(0),
+                            equalTo(new BulkResult.ItemError(1, "review.rating must be positive",
+                                    List.of(new Problem.FieldError("rating", "review.rating must be positive")))));
+                    assertThat(bulkResult.getErrors().get(1).getIndex(), equalTo(2L));
+                });
+
+        StepVerifier.create(statsRepository.findById(4L))
+                .assertNext(stats -> {
+                    assertThat(stats.getCount(), equalTo(2L));
+                    assertThat(stats.getMean(), equalTo(8.25));
+                })
+                .verifyComplete();
+    }
+
     @Test
     void getReviews() {
         client
@@ -89,6 +156,31 @@ public class ReviewsIT {
                 });
     }
 
+    @Test
+    void updateReview_ifMatch() {
+        var review = new Review(null, null, "Updated review", 9.9);
+        client
+                .put()
+                .uri("/v1/reviews/{id}", "specific-id")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"");
+
+        // a second writer still holding version 0 doesn't overwrite the first
+        client
+                .put()
+                .uri("/v1/reviews/{id}", "specific-id")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
     @Test
     void deleteReview() {
         client
@@ -118,6 +210,135 @@ public class ReviewsIT {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviews_pages() {
+        var firstPage = client
+                .get()
+                .uri("/v1/reviews?limit=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2)
+                .returnResult();
+        var nextCursor = firstPage.getResponseHeaders().getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+        assertThat(nextCursor, is(not(nullValue())));
+
+        client
+                .get()
+                .uri("/v1/reviews?limit=2&after={after}", nextCursor)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(ReviewHandler.NEXT_CURSOR_HEADER)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void prometheusScrape() {
+        client
+                .get()
+                .uri("/v1/reviews?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // histograms make for a large scrape
+        client
+                .mutate()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build()
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .consumeWith(result -> {
+                    var scrape = result.getResponseBody();
+                    assertThat(scrape, containsString("http_server_requests_seconds_bucket{"));
+                    assertThat(scrape, containsString("uri=\"/v1/reviews\""));
+                    assertThat(scrape, containsString("reviews_repository_seconds_bucket{method=\"findReviews\",outcome=\"success\",repository=\"ReviewReactiveRepository\""));
+                    assertThat(scrape, containsString("reviews_broadcast_subscribers "));
+                    assertThat(scrape, containsString("reviews_broadcast_dropped_total{"));
+                });
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds() {
+        client
+                .post()
+                .uri("/v1/reviews/batch")
+                .bodyValue(List.of(1L, 2L, 3L))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void getReviewStats_maintainedOnAddUpdateDelete() {
+        var created = client
+                .post()
+                .uri("/v1/reviews")
+                .bodyValue(new Review(null, 3L, "Good movie", 7.5))
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(Review.class)
+                .returnResult()
+                .getResponseBody();
+        client
+                .post()
+                .uri("/v1/reviews")
+                .bodyValue(new Review(null, 3L, "Great movie", 9.0))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+        client
+                .put()
+                .uri("/v1/reviews/{id}", created.getReviewId())
+                .bodyValue(new Review(null, null, "Better on second watch", 8.0))
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        var uri = UriComponentsBuilder.fromUriString("/v1/reviews/stats")
+                .queryParam("movieInfoId", 3L)
+                .buildAndExpand()
+                .toUri();
+        client
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(ReviewStats.class)
+                .consumeWith(result -> {
+                    var stats = result.getResponseBody();
+                    assertThat(stats.getCount(), equalTo(2L));
+                    assertThat(stats.getMean(), equalTo(8.5));
+                    assertThat(stats.getHistogram(), equalTo(Map.of("15", 0L, "16", 1L, "18", 1L)));
+                });
+
+        client
+                .delete()
+                .uri("/v1/reviews/{id}", created.getReviewId())
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        StepVerifier.create(statsRepository.findById(3L))
+                .assertNext(stats -> {
+                    assertThat(stats.getCount(), equalTo(1L));
+                    assertThat(stats.getMean(), equalTo(9.0));
+                })
+                .verifyComplete();
+    }
+
     @Test
     void getReviewsStream() {
         var review = new Review(null, 1L, "Comment to test this stream", 7.5);
@@ -0,0 +1,90 @@
+package io.jay.moviesreviewservice.repository;
+
+import io.jay.moviescommon.configuration.MongoIndexInitializer;
+import io.jay.moviescommon.domain.Fields;
+import io.jay.moviesreviewservice.configuration.MongoIndexConfiguration;
+import io.jay.moviesreviewservice.domain.Review;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@DataMongoTest
+@Import(MongoIndexConfiguration.class)
+public class ReviewReactiveRepositoryTests {
+
+    @Autowired
+    ReviewReactiveRepository repository;
+
+    @Autowired
+    MongoIndexInitializer indexInitializer;
+
+    @BeforeEach
+    void setup() {
+        var reviews = List.of(
+                new Review(null, 1L, "Awesome movie", 9.0),
+                new Review(null, 1L, "Great movie", 8.0),
+                new Review("specific-id", 2L, "Best movie", 9.0)
+        );
+        repository.saveAll(reviews).blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll().block();
+    }
+
+    @Test
+    void findByMovieInfoId() {
+        StepVerifier.create(repository.findByMovieInfoId(1L))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void findReviews_projected() {
+        StepVerifier.create(repository.findReviews(2L, new Fields(Set.of("rating"))))
+                .assertNext(review -> {
+                    assertThat(review.getReviewId(), equalTo("specific-id"));
+                    assertThat(review.getRating(), equalTo(9.0));
+                    assertThat(review.getComment(), is(nullValue()));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findByMovieInfoIdIn() {
+        StepVerifier.create(repository.findByMovieInfoIdIn(List.of(1L, 2L)))
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    void hotPathQueries_useAnIndex() {
+        for (var query : MongoIndexConfiguration.HOT_PATH_QUERIES) {
+            StepVerifier.create(indexInitializer.usesIndex(query))
+                    .expectNext(true)
+                    .as(query.getName())
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void unindexedQuery_isDetected() {
+        var query = new MongoIndexInitializer.HotPathQuery("findByComment", Review.class,
+                new Document("comment", "Great movie"), new Document());
+        StepVerifier.create(indexInitializer.usesIndex(query))
+                .expectNext(false)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,58 @@
+package io.jay.moviesreviewservice.seed;
+
+import io.jay.moviesreviewservice.domain.Review;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ReviewSeederTests {
+
+    private static ReviewSeeder seeder(long seed) {
+        return new ReviewSeeder(null, null, null, 1000, 25_000, seed, 5000, 4, true, 1.0);
+    }
+
+    @Test
+    void sameSeedGivesSameReviews() {
+        assertThat(seeder(42).batch(3), equalTo(seeder(42).batch(3)));
+        assertThat(seeder(42).batch(3), not(equalTo(seeder(43).batch(3))));
+    }
+
+    @Test
+    void reviewIdsAreOrderedObjectIds() {
+        var seeder = seeder(42);
+        var last = seeder.batch(4).get(4999).getReviewId();
+
+        assertThat(ObjectId.isValid(last), is(true));
+        assertThat(seeder.batch(0).get(0).getReviewId().compareTo(last), lessThan(0));
+        assertThat(seeder.batch(4).size(), equalTo(5000));
+    }
+
+    @Test
+    void reviewsPerMovieAreSkewed() {
+        var reviewsPerMovie = seeder(42).batch(0).stream()
+                .collect(Collectors.groupingBy(Review::getMovieInfoId, Collectors.counting()));
+
+        // movie 1 takes 1 / H(1000) of the reviews, about 13%
+        assertThat(reviewsPerMovie.get(1L), allOf(greaterThan(550L), lessThan(800L)));
+        assertThat(reviewsPerMovie.get(1L), greaterThan(reviewsPerMovie.getOrDefault(10L, 0L) * 5));
+    }
+
+    @Test
+    void ratingsAreHalfStarsLeaningHigh() {
+        var reviews = seeder(42).batch(0);
+        Map<Double, Long> ratings = reviews.stream()
+                .collect(Collectors.groupingBy(Review::getRating, Collectors.counting()));
+
+        assertThat(ratings.keySet(), everyItem(allOf(greaterThanOrEqualTo(0.5), lessThanOrEqualTo(5.0))));
+        assertThat(ratings.keySet().stream().map(rating -> rating * 2 % 1).collect(Collectors.toSet()),
+                contains(0.0));
+        var mean = reviews.stream().mapToDouble(Review::getRating).average().orElse(0);
+        assertThat(mean, greaterThan(3.0));
+        assertThat(ratings.getOrDefault(5.0, 0L), greaterThan(ratings.getOrDefault(1.0, 0L)));
+    }
+}
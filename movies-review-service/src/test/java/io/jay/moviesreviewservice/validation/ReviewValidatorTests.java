@@ -0,0 +1,64 @@
+package io.jay.moviesreviewservice.validation;
+
+import io.jay.moviesreviewservice.domain.Problem;
+import io.jay.moviesreviewservice.domain.Review;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ReviewValidatorTests {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final ReviewValidator reviewValidator = new ReviewValidator(validator);
+
+    @Test
+    void validReview() {
+        assertThat(reviewValidator.check(new Review(null, 1L, "Good movie", 7.5)), is(nullValue()));
+        assertThat(reviewValidator.check(new Review(null, 1L, null, null)), is(nullValue()));
+    }
+
+    @Test
+    void reportsFieldErrors() {
+        var failure = reviewValidator.check(new Review(null, null, "Good movie", -1.0));
+
+        assertThat(failure.getMessage(), equalTo("review.movieInfoId must not be null, review.rating must be positive"));
+        assertThat(failure.getErrors(), contains(
+                new Problem.FieldError("movieInfoId", "review.movieInfoId must not be null"),
+                new Problem.FieldError("rating", "review.rating must be positive")));
+    }
+
+    @Test
+    void sharesFailuresOfTheSameViolations() {
+        var failure = reviewValidator.check(new Review(null, 1L, "Good movie", -1.0));
+
+        assertThat(reviewValidator.check(new Review(null, 2L, "Bad movie", -5.0)), is(sameInstance(failure)));
+        assertThat(reviewValidator.check(new Review(null, null, "Bad movie", -5.0)), is(not(sameInstance(failure))));
+    }
+
+    @Test
+    void agreesWithTheValidator() {
+        var reviews = List.of(
+                new Review(null, 1L, "Good movie", 0.0),
+                new Review(null, 1L, "Good movie", -0.5),
+                new Review(null, 1L, "Good movie", Double.NaN),
+                new Review(null, 1L, "Good movie", Double.POSITIVE_INFINITY),
+                new Review(null, 1L, "Good movie", Double.NEGATIVE_INFINITY),
+                new Review(null, null, null, null));
+
+        for (var review : reviews) {
+            var expected = validator.validate(review).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            var failure = reviewValidator.check(review);
+            assertThat(review.toString(), failure == null ? "" : failure.getMessage(), equalTo(expected));
+        }
+    }
+}
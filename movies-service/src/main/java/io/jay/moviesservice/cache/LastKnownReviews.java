@@ -0,0 +1,48 @@
+package io.jay.moviesservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jay.moviesservice.domain.Review;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Last reviews successfully looked up per movie, served while the review service is short-circuited.
+ */
+@Component
+public class LastKnownReviews {
+
+    private final Cache<String, List<Review>> cache;
+
+    public LastKnownReviews(MeterRegistry meterRegistry,
+                            @Value("${movies.fallback.reviews.maximumSize:10000}") long maximumSize,
+                            @Value("${movies.fallback.reviews.ttl:1h}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "lastKnownReviews");
+    }
+
+    public void put(String movieId, List<Review> reviews) {
+        cache.put(movieId, reviews);
+    }
+
+    /**
+     * @return the last known reviews, or an empty list if there are none
+     */
+    public List<Review> get(String movieId) {
+        var reviews = cache.getIfPresent(movieId);
+        return reviews == null ? List.of() : reviews;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
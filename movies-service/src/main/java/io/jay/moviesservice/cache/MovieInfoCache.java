@@ -0,0 +1,163 @@
+package io.jay.moviesservice.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jay.moviesservice.client.MoviesInfoRestClient;
+import io.jay.moviesservice.domain.MovieFields;
+import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.exception.MoviesInfoClientException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read-through cache in front of {@link MoviesInfoRestClient#retrieveMovieInfo(String)}.
+ * Concurrent misses for the same id share one upstream request, 404s are cached for a short time
+ * and entries are refreshed from the movie info SSE stream, or evicted when it announces a delete.
+ */
+@Component
+public class MovieInfoCache {
+
+    private final MoviesInfoRestClient moviesInfoRestClient;
+    private final AsyncCache<String, Optional<MovieInfo>> cache;
+    private final boolean enabled;
+    private final boolean refreshFromStream;
+    private Disposable streamSubscription;
+
+    public MovieInfoCache(MoviesInfoRestClient moviesInfoRestClient,
+                          MeterRegistry meterRegistry,
+                          @Value("${movies.cache.movieInfo.enabled:true}") boolean enabled,
+                          @Value("${movies.cache.movieInfo.maximumSize:10000}") long maximumSize,
+                          @Value("${movies.cache.movieInfo.ttl:10m}") Duration ttl,
+                          @Value("${movies.cache.movieInfo.notFoundTtl:5s}") Duration notFoundTtl,
+                          @Value("${movies.cache.movieInfo.refreshFromStream:true}") boolean refreshFromStream) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.enabled = enabled;
+        this.refreshFromStream = refreshFromStream;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new FoundOrNotFoundExpiry(ttl, notFoundTtl))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "movieInfo");
+    }
+
+    public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        if (!enabled) {
+            return moviesInfoRestClient.retrieveMovieInfo(movieId);
+        }
+        // copy() so that a cancelled subscriber does not cancel the load shared with other subscribers
+        return Mono.fromFuture(() -> cache.get(movieId, (id, executor) -> load(id)).copy())
+                .flatMap(movieInfo -> movieInfo
+                        .map(Mono::just)
+                        .orElseGet(() -> Mono.error(notFound(movieId))));
+    }
+
+    /**
+     * Projects cached movie infos locally, so projections share one entry per movie; with the cache disabled the
+     * projection is left to the movie info service.
+     *
+     * @param fields the properties to return, all of them when empty
+     */
+    public Mono<MovieInfo> retrieveMovieInfo(String movieId, Set<String> fields) {
+        if (!enabled) {
+            return moviesInfoRestClient.retrieveMovieInfo(movieId, fields);
+        }
+        return retrieveMovieInfo(movieId)
+                .map(movieInfo -> MovieFields.project(movieInfo, fields));
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private CompletableFuture<Optional<MovieInfo>> load(String movieId) {
+        return moviesInfoRestClient.retrieveMovieInfo(movieId)
+                .map(Optional::of)
+                .onErrorResume(MoviesInfoClientException.class, ex -> {
+                    if (ex.getStatus() == HttpStatus.NOT_FOUND.value()) {
+                        return Mono.just(Optional.empty());
+                    }
+                    return Mono.error(ex);
+                })
+                .toFuture();
+    }
+
+    private MoviesInfoClientException notFound(String movieId) {
+        return new MoviesInfoClientException("No movie info for id " + movieId, HttpStatus.NOT_FOUND.value());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeToMovieInfoStream() {
+        if (!enabled || !refreshFromStream) {
+            return;
+        }
+        // the client resumes the stream by itself, so this subscription lives as long as the application
+        streamSubscription = moviesInfoRestClient.retrieveMovieInfoStream(null)
+                .filter(event -> event.data() != null)
+                .subscribe(event -> {
+                    if (MoviesInfoRestClient.DELETE_EVENT.equals(event.event())) {
+                        evict(event.data().getMovieInfoId());
+                    } else {
+                        refresh(event.data());
+                    }
+                });
+    }
+
+    void refresh(MovieInfo movieInfo) {
+        // only refresh entries somebody asked for, including cached 404s for movies that now exist
+        if (cache.getIfPresent(movieInfo.getMovieInfoId()) != null) {
+            cache.put(movieInfo.getMovieInfoId(), CompletableFuture.completedFuture(Optional.of(movieInfo)));
+        }
+    }
+
+    void evict(String movieInfoId) {
+        cache.synchronous().invalidate(movieInfoId);
+    }
+
+    @PreDestroy
+    public void unsubscribeFromMovieInfoStream() {
+        if (streamSubscription != null) {
+            streamSubscription.dispose();
+        }
+    }
+
+    private static class FoundOrNotFoundExpiry implements Expiry<String, Optional<MovieInfo>> {
+
+        private final long ttlNanos;
+        private final long notFoundTtlNanos;
+
+        FoundOrNotFoundExpiry(Duration ttl, Duration notFoundTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.notFoundTtlNanos = notFoundTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<MovieInfo> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : notFoundTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<MovieInfo> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<MovieInfo> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
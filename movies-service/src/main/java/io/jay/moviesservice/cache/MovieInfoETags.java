@@ -0,0 +1,52 @@
+package io.jay.moviesservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jay.moviesservice.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The last movie info fetched per request, with its ETag, so that the next fetch can be a conditional request
+ * answered with a 304 instead of the whole movie info.
+ */
+@Component
+public class MovieInfoETags {
+
+    private final Cache<String, Tagged> cache;
+
+    public MovieInfoETags(MeterRegistry meterRegistry,
+                          @Value("${restClient.eTags.maximumSize:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "movieInfoETags");
+    }
+
+    public void put(String key, String eTag, MovieInfo movieInfo) {
+        cache.put(key, new Tagged(eTag, movieInfo));
+    }
+
+    /**
+     * @return the last movie info fetched for {@code key}, or {@code null}
+     */
+    public Tagged get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Tagged {
+        private final String eTag;
+        private final MovieInfo movieInfo;
+    }
+}
@@ -0,0 +1,25 @@
+package io.jay.moviesservice.client;
+
+import io.jay.moviesservice.domain.Problem;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads the message of an error response: the detail of a problem ({@code application/problem+json}), falling back
+ * to its title, or the body as is.
+ */
+final class ErrorMessages {
+
+    private ErrorMessages() {
+    }
+
+    static Mono<String> of(ClientResponse clientResponse) {
+        var contentType = clientResponse.headers().contentType();
+        if (contentType.isPresent() && MediaType.APPLICATION_PROBLEM_JSON.isCompatibleWith(contentType.get())) {
+            return clientResponse.bodyToMono(Problem.class)
+                    .flatMap(problem -> Mono.justOrEmpty(problem.getDetail() != null ? problem.getDetail() : problem.getTitle()));
+        }
+        return clientResponse.bodyToMono(String.class);
+    }
+}
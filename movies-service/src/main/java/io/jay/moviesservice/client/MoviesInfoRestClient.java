@@ -1,55 +1,188 @@
 package io.jay.moviesservice.client;
 
+import io.jay.moviescommon.tracing.StageTracer;
+import io.jay.moviesservice.cache.MovieInfoETags;
 import io.jay.moviesservice.domain.MovieInfo;
 import io.jay.moviesservice.exception.MoviesInfoClientException;
 import io.jay.moviesservice.exception.MoviesInfoServerException;
-import io.jay.moviesservice.util.RetryUtil;
+import io.jay.moviesservice.util.RetryPolicy;
+import io.jay.moviesservice.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Component
 @RequiredArgsConstructor
+@Log4j2
 public class MoviesInfoRestClient {
 
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    // type of the stream events announcing a deleted movie info, whose data only carries the id
+    public static final String DELETE_EVENT = "delete";
+
+    private static final String CLIENT_NAME = "moviesInfo";
+
     private final WebClient client;
+    private final RetryPolicy retryPolicy;
+    private final MovieInfoETags movieInfoETags;
+    private final StageTracer stageTracer;
+    private final SingleFlight<String, MovieInfo> movieInfoLookups = new SingleFlight<>();
 
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfoUrl;
 
+    @Value("${restClient.wireFormat:JSON}")
+    private WireFormat wireFormat;
+
+    @Value("${restClient.timeouts.streamIdle:10m}")
+    private Duration streamIdleTimeout;
+
+    @Value("${restClient.streamReconnect.minBackoff:1s}")
+    private Duration streamReconnectMinBackoff;
+
+    @Value("${restClient.streamReconnect.maxBackoff:1m}")
+    private Duration streamReconnectMaxBackoff;
+
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
-        var uri = moviesInfoUrl.concat("/{id}");
-        return client
-                .get()
-                .uri(uri, movieId)
+        return retrieveMovieInfo(movieId, Set.of());
+    }
+
+    /**
+     * Revalidates the movie info fetched last time, if any, with a conditional request, so an unchanged movie info
+     * costs a 304 instead of its body.
+     *
+     * @param fields the properties to fetch, all of them when empty
+     */
+    public Mono<MovieInfo> retrieveMovieInfo(String movieId, Set<String> fields) {
+        var projection = String.join(",", new TreeSet<>(fields));
+        var key = fields.isEmpty() ? movieId : movieId + "?fields=" + projection;
+        return movieInfoLookups.execute(key, () -> fetchMovieInfo(key, movieId, projection));
+    }
+
+    private Mono<MovieInfo> fetchMovieInfo(String key, String movieId, String projection) {
+        var uri = projection.isEmpty() ? moviesInfoUrl.concat("/{id}") : moviesInfoUrl.concat("/{id}?fields={fields}");
+        // deferred so that every retry revalidates what is stored by then
+        var request = Mono.defer(() -> {
+            var tagged = movieInfoETags.get(key);
+            return client
+                    .get()
+                    .uri(uri, movieId, projection)
+                    .headers(headers -> {
+                        if (tagged != null) {
+                            headers.setIfNoneMatch(tagged.getETag());
+                        }
+                    })
+                    .accept(wireFormat.getAccept())
+                    .retrieve()
+                    .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                        HttpStatus httpStatus = clientResponse.statusCode();
+                        if (httpStatus.equals(HttpStatus.NOT_FOUND)) {
+                            return Mono.error(new MoviesInfoClientException("No movie info for id " + movieId, httpStatus.value()));
+                        }
+                        return ErrorMessages.of(clientResponse)
+                                .flatMap(message -> Mono.error(new MoviesInfoClientException(message, httpStatus.value())));
+                    })
+                    .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                        return ErrorMessages.of(clientResponse)
+                                .flatMap(message -> Mono.error(new MoviesInfoServerException(message)));
+                    })
+                    .toEntity(MovieInfo.class)
+                    .flatMap(entity -> {
+                        if (entity.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                            return Mono.justOrEmpty(tagged == null ? null : tagged.getMovieInfo());
+                        }
+                        var eTag = entity.getHeaders().getETag();
+                        if (eTag != null && entity.getBody() != null) {
+                            movieInfoETags.put(key, eTag, entity.getBody());
+                        }
+                        return Mono.justOrEmpty(entity.getBody());
+                    });
+        });
+        return retryPolicy.withHedgedRetry(CLIENT_NAME, request, MoviesInfoServerException.class)
+                .transform(stageTracer.traced("movieinfo.fetch"));
+    }
+
+    public Flux<MovieInfo> retrieveMovieInfos(List<String> movieIds) {
+        var uri = moviesInfoUrl.concat("/batch");
+        var request = client
+                .post()
+                .uri(uri)
+                .bodyValue(movieIds)
+                .accept(wireFormat.getAccept())
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     HttpStatus httpStatus = clientResponse.statusCode();
-                    if (httpStatus.equals(HttpStatus.NOT_FOUND)) {
-                        return Mono.error(new MoviesInfoClientException("No movie info for id " + movieId, httpStatus.value()));
-                    }
-                    return clientResponse.bodyToMono(String.class)
+                    return ErrorMessages.of(clientResponse)
                             .flatMap(message -> Mono.error(new MoviesInfoClientException(message, httpStatus.value())));
                 })
                 .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
-                    return clientResponse.bodyToMono(String.class)
+                    return ErrorMessages.of(clientResponse)
                             .flatMap(message -> Mono.error(new MoviesInfoServerException(message)));
                 })
-                .bodyToMono(MovieInfo.class)
-                .retryWhen(RetryUtil.retrySpec(MoviesInfoServerException.class))
-                .log();
+                .bodyToFlux(MovieInfo.class)
+                .collectList();
+        return retryPolicy.withRetry(CLIENT_NAME, request, MoviesInfoServerException.class)
+                .flatMapIterable(Function.identity());
     }
 
-    public Flux<MovieInfo> retrieveMovieInfoStream() {
+    /**
+     * Events of the movie info SSE stream, heartbeat comments included. The stream never ends on its own: when the
+     * connection fails or closes, the client reconnects with the id of the last event it received and the movie
+     * info service replays what was missed in between.
+     *
+     * @param lastEventId id to resume after on the first connection, or {@code null} to start from the latest event
+     */
+    public Flux<ServerSentEvent<MovieInfo>> retrieveMovieInfoStream(String lastEventId) {
+        return Flux.defer(() -> {
+            var lastSeenId = new AtomicReference<>(lastEventId);
+            return Flux.defer(() -> fetchMovieInfoStream(lastSeenId.get()))
+                    .doOnNext(event -> {
+                        if (event.id() != null) {
+                            lastSeenId.set(event.id());
+                        }
+                    })
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, streamReconnectMinBackoff)
+                            .maxBackoff(streamReconnectMaxBackoff)
+                            .transientErrors(true)
+                            .doBeforeRetry(retrySignal -> log.warn("Movie info stream failed, resuming after event {}: {}",
+                                    lastSeenId.get(), retrySignal.failure().getMessage())))
+                    .repeatWhen(completed -> completed.delayElements(streamReconnectMinBackoff));
+        });
+    }
+
+    private Flux<ServerSentEvent<MovieInfo>> fetchMovieInfoStream(String lastEventId) {
         var uri = moviesInfoUrl.concat("/stream");
         return client
                 .get()
                 .uri(uri)
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set(LAST_EVENT_ID_HEADER, lastEventId);
+                    }
+                })
+                .httpRequest(httpRequest -> {
+                    // heartbeats keep a healthy stream busy, so a stream that stays quiet this long is dead
+                    HttpClientRequest reactorRequest = httpRequest.getNativeRequest();
+                    reactorRequest.responseTimeout(streamIdleTimeout);
+                })
                 .retrieve()
-                .bodyToFlux(MovieInfo.class);
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {
+                });
     }
 }
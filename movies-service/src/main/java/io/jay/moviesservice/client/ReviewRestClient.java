@@ -1,50 +1,152 @@
 package io.jay.moviesservice.client;
 
+import io.jay.moviescommon.tracing.StageTracer;
 import io.jay.moviesservice.domain.Review;
+import io.jay.moviesservice.domain.ReviewStats;
 import io.jay.moviesservice.exception.ReviewsClientException;
 import io.jay.moviesservice.exception.ReviewsServerException;
-import io.jay.moviesservice.util.RetryUtil;
+import io.jay.moviesservice.util.RetryPolicy;
+import io.jay.moviesservice.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Component
 @RequiredArgsConstructor
 public class ReviewRestClient {
 
+    private static final String CLIENT_NAME = "reviews";
+
     private final WebClient client;
+    private final RetryPolicy retryPolicy;
+    private final StageTracer stageTracer;
+    private final SingleFlight<String, List<Review>> reviewLookups = new SingleFlight<>();
 
     @Value("${restClient.reviewsUrl}")
     private String reviewUrl;
 
+    @Value("${restClient.wireFormat:JSON}")
+    private WireFormat wireFormat;
+
     public Flux<Review> retrieveReviews(String movieId) {
+        return retrieveReviews(movieId, Set.of());
+    }
+
+    /**
+     * @param fields the properties to fetch, all of them when empty
+     */
+    public Flux<Review> retrieveReviews(String movieId, Set<String> fields) {
+        var projection = String.join(",", new TreeSet<>(fields));
+        var key = fields.isEmpty() ? movieId : movieId + "?fields=" + projection;
+        return reviewLookups.execute(key, () -> fetchReviews(movieId, projection))
+                .flatMapIterable(Function.identity());
+    }
+
+    private Mono<List<Review>> fetchReviews(String movieId, String projection) {
+        var uriBuilder = UriComponentsBuilder.fromHttpUrl(reviewUrl)
+                .queryParam("movieInfoId", movieId);
+        if (!projection.isEmpty()) {
+            uriBuilder.queryParam("fields", projection);
+        }
+        var uri = uriBuilder
+                .buildAndExpand()
+                .toUriString();
+
+        var request = client
+                .get()
+                .uri(uri)
+                .accept(wireFormat.getAccept())
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() && status != HttpStatus.NOT_FOUND, clientResponse -> {
+                    return ErrorMessages.of(clientResponse)
+                            .flatMap(message -> Mono.error(new ReviewsClientException(message)));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    return ErrorMessages.of(clientResponse)
+                            .flatMap(message -> Mono.error(new ReviewsServerException(message)));
+                })
+                .bodyToFlux(Review.class)
+                // no reviews yet, whatever the body of the 404 looks like
+                .onErrorResume(WebClientResponseException.NotFound.class, ex -> Flux.empty())
+                .collectList();
+        return retryPolicy.withHedgedRetry(CLIENT_NAME, request, ReviewsServerException.class)
+                .transform(stageTracer.traced("reviews.fetch"));
+    }
+
+    public Mono<ReviewStats> retrieveReviewStats(String movieId) {
         var uri = UriComponentsBuilder.fromHttpUrl(reviewUrl)
+                .path("/stats")
                 .queryParam("movieInfoId", movieId)
                 .buildAndExpand()
                 .toUriString();
 
-        return client
+        var request = client
                 .get()
                 .uri(uri)
+                .accept(wireFormat.getAccept())
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    return ErrorMessages.of(clientResponse)
+                            .flatMap(message -> Mono.error(new ReviewsClientException(message)));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    return ErrorMessages.of(clientResponse)
+                            .flatMap(message -> Mono.error(new ReviewsServerException(message)));
+                })
+                .bodyToMono(ReviewStats.class);
+        return retryPolicy.withHedgedRetry(CLIENT_NAME, request, ReviewsServerException.class);
+    }
+
+    /**
+     * Reviews are keyed by numeric movie info ids, so other ids have no reviews and are not sent: the review service
+     * would reject the whole batch because of them.
+     */
+    public Flux<Review> retrieveReviews(List<String> movieIds) {
+        var numericIds = movieIds.stream()
+                .filter(ReviewRestClient::isNumeric)
+                .collect(Collectors.toList());
+        if (numericIds.isEmpty()) {
+            return Flux.empty();
+        }
+        var uri = reviewUrl.concat("/batch");
+        var request = client
+                .post()
+                .uri(uri)
+                .bodyValue(numericIds)
+                .accept(wireFormat.getAccept())
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
-                    if (clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
-                        return Mono.empty();
-                    }
-                    return clientResponse.bodyToMono(String.class)
+                    return ErrorMessages.of(clientResponse)
                             .flatMap(message -> Mono.error(new ReviewsClientException(message)));
                 })
                 .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
-                    return clientResponse.bodyToMono(String.class)
+                    return ErrorMessages.of(clientResponse)
                             .flatMap(message -> Mono.error(new ReviewsServerException(message)));
                 })
                 .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec(ReviewsServerException.class))
-                .log();
+                .collectList();
+        return retryPolicy.withRetry(CLIENT_NAME, request, ReviewsServerException.class)
+                .flatMapIterable(Function.identity());
+    }
+
+    private static boolean isNumeric(String movieId) {
+        try {
+            Long.parseLong(movieId);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,26 @@
+package io.jay.moviesservice.client;
+
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * What the REST clients ask the backends to answer in, set with {@code restClient.wireFormat}.
+ */
+public enum WireFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    /**
+     * Binary JSON, smaller and cheaper to parse. JSON stays acceptable, so backends without Smile still answer.
+     */
+    SMILE(new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_JSON);
+
+    private final List<MediaType> accept;
+
+    WireFormat(MediaType... accept) {
+        this.accept = List.of(accept);
+    }
+
+    public MediaType[] getAccept() {
+        return accept.toArray(MediaType[]::new);
+    }
+}
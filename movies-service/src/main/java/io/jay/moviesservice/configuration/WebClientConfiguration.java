@@ -1,14 +1,58 @@
 package io.jay.moviesservice.configuration;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfiguration {
 
+    /**
+     * Reactor Netty keeps one pool per remote address, so the limits below apply to each downstream service.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider connectionProvider(@Value("${restClient.pool.maxConnections:100}") int maxConnections,
+                                                 @Value("${restClient.pool.pendingAcquireMaxCount:500}") int pendingAcquireMaxCount,
+                                                 @Value("${restClient.pool.pendingAcquireTimeout:2s}") Duration pendingAcquireTimeout,
+                                                 @Value("${restClient.pool.maxIdleTime:30s}") Duration maxIdleTime,
+                                                 @Value("${restClient.pool.maxLifeTime:5m}") Duration maxLifeTime,
+                                                 @Value("${restClient.pool.evictInBackground:30s}") Duration evictInBackground,
+                                                 @Value("${restClient.pool.metrics:true}") boolean metrics) {
+        return ConnectionProvider.builder("restClient")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(metrics)
+                .build();
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient webClient(WebClient.Builder builder,
+                               ConnectionProvider connectionProvider,
+                               @Value("${restClient.timeouts.connect:2s}") Duration connectTimeout,
+                               @Value("${restClient.timeouts.response:5s}") Duration responseTimeout,
+                               @Value("${restClient.http2:false}") boolean http2) {
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                // Reactor Netty applies this between reads of the same response, so it doubles as the read timeout
+                .responseTimeout(responseTimeout);
+        if (http2) {
+            // prior knowledge h2c: the backends speak cleartext HTTP/2, so one connection multiplexes many lookups
+            httpClient = httpClient.protocol(HttpProtocol.H2C);
+        }
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
 }
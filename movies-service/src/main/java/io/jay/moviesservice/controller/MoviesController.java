@@ -1,38 +1,202 @@
 package io.jay.moviesservice.controller;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.jay.moviesservice.cache.LastKnownReviews;
+import io.jay.moviesservice.cache.MovieInfoCache;
 import io.jay.moviesservice.client.MoviesInfoRestClient;
 import io.jay.moviesservice.client.ReviewRestClient;
 import io.jay.moviesservice.domain.Movie;
+import io.jay.moviesservice.domain.MovieFields;
 import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.domain.ReviewStats;
+import io.jay.moviesservice.util.MovieAssembler;
+import io.jay.moviesservice.util.MovieETags;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/v1/movies")
 @RequiredArgsConstructor
 public class MoviesController {
 
     private final MoviesInfoRestClient moviesInfoRestClient;
+    private final MovieInfoCache movieInfoCache;
     private final ReviewRestClient reviewRestClient;
+    private final LastKnownReviews lastKnownReviews;
+
+    @Value("${movies.aggregationMode:PARALLEL}")
+    private AggregationMode aggregationMode;
 
+    // 0 lets clients keep a copy but revalidate it on every use
+    @Value("${movies.cacheControl.maxAge:0s}")
+    private Duration cacheMaxAge;
+
+    /**
+     * Answers with an ETag derived from the versions of the parts of the movie. A matching {@code If-None-Match}
+     * gets a 304 from the result handler before the movie is serialized; degraded movies are not to be cached.
+     */
     @GetMapping("/{movieId}")
-    public Mono<Movie> retrieveMovieById(@PathVariable String movieId) {
-        return moviesInfoRestClient.retrieveMovieInfo(movieId)
-                .flatMap(movieInfo -> {
-                    var reviewsMono = reviewRestClient.retrieveReviews(movieInfo.getMovieInfoId())
-                            .collectList();
-                    return reviewsMono.map(reviews -> new Movie(movieInfo, reviews));
+    public Mono<ResponseEntity<Movie>> retrieveMovieById(@PathVariable String movieId,
+                                                         @RequestParam(defaultValue = "false") boolean stats,
+                                                         @RequestParam(required = false) String fields) {
+        var representation = fields != null ? "fields=" + fields : "stats=" + stats;
+        return retrieveMovie(movieId, stats, fields)
+                .map(movie -> {
+                    var eTag = MovieETags.of(movie, representation);
+                    if (eTag == null) {
+                        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(movie);
+                    }
+                    return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl()).varyBy(HttpHeaders.ACCEPT).body(movie);
                 });
     }
 
+    private CacheControl cacheControl() {
+        return cacheMaxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(cacheMaxAge);
+    }
+
+    private Mono<Movie> retrieveMovie(String movieId, boolean stats, String fields) {
+        if (fields != null) {
+            return retrieveMovieById(movieId, MovieFields.parse(fields));
+        }
+        if (aggregationMode == AggregationMode.SEQUENTIAL) {
+            return movieInfoCache.retrieveMovieInfo(movieId)
+                    .flatMap(movieInfo -> retrieveReviews(movieInfo.getMovieInfoId(), stats)
+                            .map(movie -> withMovieInfo(movie, movieInfo)));
+        }
+
+        // zip cancels the in-flight review call as soon as the movie info lookup fails
+        var movieInfoMono = movieInfoCache.retrieveMovieInfo(movieId);
+        var reviewsMono = retrieveReviews(movieId, stats);
+        return Mono.zip(movieInfoMono, reviewsMono, (movieInfo, movie) -> withMovieInfo(movie, movieInfo));
+    }
+
+    /**
+     * Looks up only the parts of the movie in {@code fields}, which replaces {@code stats}. The movie info is always
+     * looked up, if only its id, so that unknown movies are still 404s.
+     */
+    private Mono<Movie> retrieveMovieById(String movieId, MovieFields fields) {
+        var movieInfoMono = movieInfoCache.retrieveMovieInfo(movieId,
+                fields.getMovieInfo() == null ? Set.of("movieInfoId") : fields.getMovieInfo());
+        var reviewsMono = fields.getReviews() == null
+                ? Mono.just(new Movie())
+                : retrieveReviews(movieId, fields.getReviews());
+        var statsMono = fields.isReviewStats()
+                ? retrieveReviews(movieId, true)
+                : Mono.just(new Movie());
+        if (aggregationMode == AggregationMode.SEQUENTIAL) {
+            return movieInfoMono
+                    .flatMap(movieInfo -> Mono.zip(reviewsMono, statsMono,
+                            (withReviews, withStats) -> merge(fields, movieInfo, withReviews, withStats)));
+        }
+        return Mono.zip(movieInfoMono, reviewsMono, statsMono)
+                .map(parts -> merge(fields, parts.getT1(), parts.getT2(), parts.getT3()));
+    }
+
+    private static Movie merge(MovieFields fields, MovieInfo movieInfo, Movie withReviews, Movie withStats) {
+        return new Movie(fields.getMovieInfo() == null ? null : movieInfo, withReviews.getReviews(),
+                withStats.getReviewStats(), withReviews.isDegraded() || withStats.isDegraded());
+    }
+
+    /**
+     * Like {@link #retrieveReviews(String, boolean)}, with only the {@code fields} of every review. Only whole reviews
+     * are kept as last known reviews.
+     */
+    private Mono<Movie> retrieveReviews(String movieId, Set<String> fields) {
+        return reviewRestClient.retrieveReviews(movieId, fields)
+                .collectList()
+                .doOnNext(reviews -> {
+                    if (fields.isEmpty()) {
+                        lastKnownReviews.put(movieId, reviews);
+                    }
+                })
+                .map(reviews -> new Movie(null, reviews))
+                .onErrorResume(MoviesController::isShortCircuited, ex -> Mono.fromSupplier(() ->
+                        degraded(new Movie(null, MovieFields.project(lastKnownReviews.get(movieId), fields)))));
+    }
+
+    /**
+     * Emits a movie holding only the reviews, or only their stats. While the review service is short-circuited
+     * the last known reviews, or none, are served and the movie is marked as degraded.
+     */
+    private Mono<Movie> retrieveReviews(String movieId, boolean stats) {
+        if (stats) {
+            return reviewRestClient.retrieveReviewStats(movieId)
+                    .map(reviewStats -> new Movie(null, reviewStats))
+                    .onErrorResume(MoviesController::isShortCircuited,
+                            ex -> Mono.fromSupplier(() -> degraded(new Movie(null, (ReviewStats) null))));
+        }
+        return reviewRestClient.retrieveReviews(movieId)
+                .collectList()
+                .doOnNext(reviews -> lastKnownReviews.put(movieId, reviews))
+                .map(reviews -> new Movie(null, reviews))
+                .onErrorResume(MoviesController::isShortCircuited,
+                        ex -> Mono.fromSupplier(() -> degraded(new Movie(null, lastKnownReviews.get(movieId)))));
+    }
+
+    private static Movie degraded(Movie movie) {
+        movie.setDegraded(true);
+        return movie;
+    }
+
+    private static Movie withMovieInfo(Movie movie, MovieInfo movieInfo) {
+        movie.setMovieInfo(movieInfo);
+        return movie;
+    }
+
+    private static boolean isShortCircuited(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
+    }
+
+    @PostMapping("/batch")
+    public Flux<Movie> retrieveMoviesByIds(@RequestBody List<String> movieIds) {
+        var distinctIds = movieIds.stream()
+                .distinct()
+                .collect(Collectors.toList());
+        if (distinctIds.isEmpty()) {
+            return Flux.empty();
+        }
+        var movieInfosMono = moviesInfoRestClient.retrieveMovieInfos(distinctIds)
+                .collectList();
+        var reviewsMono = reviewRestClient.retrieveReviews(distinctIds)
+                .collectList();
+        return Mono.zip(movieInfosMono, reviewsMono)
+                .flatMapIterable(tuple -> MovieAssembler.assemble(distinctIds, tuple.getT1(), tuple.getT2()));
+    }
+
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<MovieInfo> retrieveMovieInfos() {
-        return moviesInfoRestClient.retrieveMovieInfoStream();
+    public Flux<ServerSentEvent<MovieInfo>> retrieveMovieInfos(@RequestHeader(value = MoviesInfoRestClient.LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        return moviesInfoRestClient.retrieveMovieInfoStream(lastEventId);
+    }
+
+    public enum AggregationMode {
+        /**
+         * Looks up reviews only after the movie info has arrived.
+         */
+        SEQUENTIAL,
+        /**
+         * Looks up movie info and reviews at the same time.
+         */
+        PARALLEL
     }
 }
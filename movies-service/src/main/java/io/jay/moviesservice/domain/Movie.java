@@ -1,5 +1,6 @@
 package io.jay.moviesservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,8 +10,27 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviews;
+
+    /**
+     * Returned instead of {@link #reviews} when the caller asks for stats only.
+     */
+    private ReviewStats reviewStats;
+
+    /**
+     * Set when the reviews could not be looked up and are empty or stale.
+     */
+    private boolean degraded;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviews) {
+        this(movieInfo, reviews, null, false);
+    }
+
+    public Movie(MovieInfo movieInfo, ReviewStats reviewStats) {
+        this(movieInfo, null, reviewStats, false);
+    }
 }
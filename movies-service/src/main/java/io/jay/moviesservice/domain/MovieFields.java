@@ -0,0 +1,108 @@
+package io.jay.moviesservice.domain;
+
+import io.jay.moviescommon.exception.InvalidFieldsException;
+import lombok.Value;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * The parts of a movie a caller asked for with {@code fields=}, e.g. {@code movieInfo.name,reviews.rating,reviewStats}.
+ * {@code movieInfo} or {@code reviews} alone select all their properties. Parts that aren't asked for aren't looked
+ * up, and the selected properties are forwarded to the backends so they only read and send those.
+ */
+@Value
+public class MovieFields {
+
+    private static final String MOVIE_INFO = "movieInfo";
+    private static final String REVIEWS = "reviews";
+    private static final String REVIEW_STATS = "reviewStats";
+
+    // null when not asked for, empty for all properties
+    Set<String> movieInfo;
+    Set<String> reviews;
+    boolean reviewStats;
+
+    public static MovieFields parse(String fields) {
+        Set<String> movieInfo = null;
+        Set<String> reviews = null;
+        var allMovieInfo = false;
+        var allReviews = false;
+        var reviewStats = false;
+        for (var field : fields.split(",")) {
+            var name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (name.equals(MOVIE_INFO)) {
+                allMovieInfo = true;
+            } else if (name.equals(REVIEWS)) {
+                allReviews = true;
+            } else if (name.equals(REVIEW_STATS)) {
+                reviewStats = true;
+            } else if (name.startsWith(MOVIE_INFO + ".") && MovieInfo.FIELDS.contains(name.substring(MOVIE_INFO.length() + 1))) {
+                movieInfo = add(movieInfo, name.substring(MOVIE_INFO.length() + 1));
+            } else if (name.startsWith(REVIEWS + ".") && Review.FIELDS.contains(name.substring(REVIEWS.length() + 1))) {
+                reviews = add(reviews, name.substring(REVIEWS.length() + 1));
+            } else {
+                throw new InvalidFieldsException("Unknown field " + name + ", expected any of " + allowed());
+            }
+        }
+        if (allMovieInfo) {
+            movieInfo = Set.of();
+        }
+        if (allReviews) {
+            reviews = Set.of();
+        }
+        if (movieInfo == null && reviews == null && !reviewStats) {
+            throw new InvalidFieldsException("fields must not be empty");
+        }
+        return new MovieFields(movieInfo == null ? null : Set.copyOf(movieInfo),
+                reviews == null ? null : Set.copyOf(reviews), reviewStats);
+    }
+
+    private static Set<String> add(Set<String> names, String name) {
+        var added = names == null ? new HashSet<String>() : names;
+        added.add(name);
+        return added;
+    }
+
+    private static Set<String> allowed() {
+        var allowed = new TreeSet<>(List.of(MOVIE_INFO, REVIEWS, REVIEW_STATS));
+        MovieInfo.FIELDS.forEach(name -> allowed.add(MOVIE_INFO + "." + name));
+        Review.FIELDS.forEach(name -> allowed.add(REVIEWS + "." + name));
+        return allowed;
+    }
+
+    /**
+     * A copy of {@code movieInfo} holding only {@code names}, the id and the version, for movie infos that were
+     * read whole.
+     */
+    public static MovieInfo project(MovieInfo movieInfo, Set<String> names) {
+        if (names.isEmpty()) {
+            return movieInfo;
+        }
+        return new MovieInfo(movieInfo.getMovieInfoId(),
+                names.contains("name") ? movieInfo.getName() : null,
+                names.contains("year") ? movieInfo.getYear() : null,
+                names.contains("cast") ? movieInfo.getCast() : null,
+                names.contains("release_date") ? movieInfo.getRelease_date() : null,
+                movieInfo.getVersion());
+    }
+
+    public static List<Review> project(List<Review> reviews, Set<String> names) {
+        if (names.isEmpty()) {
+            return reviews;
+        }
+        return reviews.stream()
+                .map(review -> new Review(review.getReviewId(),
+                        names.contains("movieInfoId") ? review.getMovieInfoId() : null,
+                        names.contains("comment") ? review.getComment() : null,
+                        names.contains("rating") ? review.getRating() : null,
+                        review.getVersion()))
+                .collect(Collectors.toList());
+    }
+}
@@ -1,5 +1,6 @@
 package io.jay.moviesservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,12 +11,19 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Validated
 public class MovieInfo {
+
+    /**
+     * The properties callers may select with {@code fields=}.
+     */
+    public static final Set<String> FIELDS = Set.of("movieInfoId", "name", "year", "cast", "release_date");
     private String movieInfoId;
 
     @NotBlank(message = "movieInfo.name must be present")
@@ -28,4 +36,10 @@ public class MovieInfo {
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
 
     private LocalDate release_date;
+
+    private Long version;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this(movieInfoId, name, year, cast, release_date, null);
+    }
 }
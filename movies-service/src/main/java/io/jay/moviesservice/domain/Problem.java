@@ -0,0 +1,21 @@
+package io.jay.moviesservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An error response body as described by RFC 7807, as the backends answer errors with.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Problem {
+
+    private String type;
+    private String title;
+    private int status;
+    private String detail;
+}
@@ -1,5 +1,6 @@
 package io.jay.moviesservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -7,13 +8,20 @@ import org.springframework.validation.annotation.Validated;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Validated
 public class Review {
 
+    /**
+     * The properties callers may select with {@code fields=}.
+     */
+    public static final Set<String> FIELDS = Set.of("reviewId", "movieInfoId", "comment", "rating");
+
     private String reviewId;
 
     @NotNull(message = "review.movieInfoId must not be null")
@@ -22,4 +30,10 @@ public class Review {
 
     @Min(value = 0L, message = "review.rating must be positive")
     private Double rating;
+
+    private Long version;
+
+    public Review(String reviewId, Long movieInfoId, String comment, Double rating) {
+        this(reviewId, movieInfoId, comment, rating, null);
+    }
 }
@@ -0,0 +1,20 @@
+package io.jay.moviesservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewStats {
+
+    private Long movieInfoId;
+    private long count;
+    private long ratingCount;
+    private double sum;
+    private Double mean;
+    private Map<String, Long> histogram;
+}
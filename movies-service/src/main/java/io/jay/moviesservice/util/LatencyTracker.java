@@ -0,0 +1,51 @@
+package io.jay.moviesservice.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Keeps the most recent latencies of one client in a ring buffer and estimates a percentile from them.
+ * The percentile is recomputed every {@code RECOMPUTE_EVERY} samples instead of on every lookup.
+ */
+public class LatencyTracker {
+
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+    private final double percentile;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private long cachedNanos = -1;
+
+    public LatencyTracker(int size, double percentile) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        if (++sinceRecompute >= RECOMPUTE_EVERY || cachedNanos < 0) {
+            sinceRecompute = 0;
+            cachedNanos = count < MIN_SAMPLES ? -1 : compute();
+        }
+    }
+
+    /**
+     * @return the estimated percentile, or empty until enough samples have been recorded
+     */
+    public synchronized Optional<Duration> percentile() {
+        return cachedNanos < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(cachedNanos));
+    }
+
+    private long compute() {
+        var sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        var index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+}
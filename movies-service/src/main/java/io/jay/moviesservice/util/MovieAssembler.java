@@ -0,0 +1,39 @@
+package io.jay.moviesservice.util;
+
+import io.jay.moviesservice.domain.Movie;
+import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.domain.Review;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MovieAssembler {
+
+    /**
+     * Joins bulk lookup results in memory, keeping the order of the requested ids.
+     * Ids without a matching movie info are skipped.
+     */
+    public static List<Movie> assemble(List<String> movieIds, List<MovieInfo> movieInfos, List<Review> reviews) {
+        var movieInfosById = new HashMap<String, MovieInfo>(movieInfos.size() * 2);
+        for (MovieInfo movieInfo : movieInfos) {
+            movieInfosById.put(movieInfo.getMovieInfoId(), movieInfo);
+        }
+
+        Map<String, List<Review>> reviewsByMovieId = new HashMap<>(movieInfos.size() * 2);
+        for (Review review : reviews) {
+            reviewsByMovieId.computeIfAbsent(String.valueOf(review.getMovieInfoId()), id -> new ArrayList<>())
+                    .add(review);
+        }
+
+        var movies = new ArrayList<Movie>(movieInfos.size());
+        for (String movieId : movieIds) {
+            var movieInfo = movieInfosById.get(movieId);
+            if (movieInfo != null) {
+                movies.add(new Movie(movieInfo, reviewsByMovieId.getOrDefault(movieId, List.of())));
+            }
+        }
+        return movies;
+    }
+}
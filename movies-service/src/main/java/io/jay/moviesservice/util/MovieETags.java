@@ -0,0 +1,43 @@
+package io.jay.moviesservice.util;
+
+import io.jay.moviesservice.domain.Movie;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.TreeMap;
+
+public class MovieETags {
+
+    /**
+     * A strong ETag derived from the ids and versions of the parts of {@code movie} rather than from its serialized
+     * bytes, so that a matching {@code If-None-Match} is answered before the movie is serialized.
+     *
+     * @param representation anything else that shapes the body, such as the requested fields
+     * @return the ETag, or {@code null} for degraded movies, which must not be cached
+     */
+    public static String of(Movie movie, String representation) {
+        if (movie.isDegraded()) {
+            return null;
+        }
+        var parts = new StringBuilder(representation);
+        var movieInfo = movie.getMovieInfo();
+        if (movieInfo != null) {
+            parts.append("|movieInfo:").append(movieInfo.getMovieInfoId()).append('@').append(movieInfo.getVersion());
+        }
+        if (movie.getReviews() != null) {
+            parts.append("|reviews");
+            for (var review : movie.getReviews()) {
+                parts.append(':').append(review.getReviewId()).append('@').append(review.getVersion());
+            }
+        }
+        var reviewStats = movie.getReviewStats();
+        if (reviewStats != null) {
+            // stats have no version, so their content stands in for one
+            parts.append("|reviewStats:").append(reviewStats.getCount())
+                    .append(':').append(reviewStats.getRatingCount())
+                    .append(':').append(reviewStats.getSum())
+                    .append(':').append(reviewStats.getHistogram() == null ? null : new TreeMap<>(reviewStats.getHistogram()));
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(parts.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,50 @@
+package io.jay.moviesservice.util;
+
+/**
+ * Token bucket that caps retries to a fraction of the traffic sent to one client.
+ * Every request deposits {@code ratio} tokens, the bucket also refills at {@code minRetriesPerSecond}
+ * so that low traffic can still retry, and every retry withdraws one token.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double minRetriesPerSecond;
+    private final double maxTokens;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public RetryBudget(double ratio, double minRetriesPerSecond, double maxTokens) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public synchronized void recordRequest() {
+        refill();
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryAcquireRetry() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        var now = System.nanoTime();
+        var elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        tokens = Math.min(maxTokens, tokens + elapsedSeconds * minRetriesPerSecond);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,210 @@
+package io.jay.moviesservice.util;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retry, timeout and hedging policy for the downstream REST clients.
+ * <ul>
+ *     <li>every attempt gets its own timeout</li>
+ *     <li>retries back off exponentially with jitter</li>
+ *     <li>every attempt goes through the client's circuit breaker and bulkhead, both named after the client</li>
+ *     <li>retries are capped per client by a {@link RetryBudget}</li>
+ *     <li>idempotent lookups can be hedged: if the first attempt is slower than the client's recent p95,
+ *     a second attempt is sent and whichever answers first wins</li>
+ * </ul>
+ */
+@Component
+public class RetryPolicy {
+
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final Duration attemptTimeout;
+    private final double budgetRatio;
+    private final double budgetMinRetriesPerSecond;
+    private final double budgetMaxTokens;
+    private final boolean hedgeEnabled;
+    private final double hedgePercentile;
+    private final Duration hedgeMinDelay;
+    private final Map<String, ClientState> clients = new ConcurrentHashMap<>();
+
+    public RetryPolicy(MeterRegistry meterRegistry,
+                       CircuitBreakerRegistry circuitBreakerRegistry,
+                       BulkheadRegistry bulkheadRegistry,
+                       @Value("${restClient.retry.maxRetries:3}") int maxRetries,
+                       @Value("${restClient.retry.minBackoff:100ms}") Duration minBackoff,
+                       @Value("${restClient.retry.maxBackoff:2s}") Duration maxBackoff,
+                       @Value("${restClient.retry.jitter:0.5}") double jitter,
+                       @Value("${restClient.retry.attemptTimeout:3s}") Duration attemptTimeout,
+                       @Value("${restClient.retry.budget.ratio:0.2}") double budgetRatio,
+                       @Value("${restClient.retry.budget.minRetriesPerSecond:10}") double budgetMinRetriesPerSecond,
+                       @Value("${restClient.retry.budget.maxTokens:50}") double budgetMaxTokens,
+                       @Value("${restClient.retry.hedge.enabled:false}") boolean hedgeEnabled,
+                       @Value("${restClient.retry.hedge.percentile:0.95}") double hedgePercentile,
+                       @Value("${restClient.retry.hedge.minDelay:10ms}") Duration hedgeMinDelay) {
+        this.meterRegistry = meterRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.attemptTimeout = attemptTimeout;
+        this.budgetRatio = budgetRatio;
+        this.budgetMinRetriesPerSecond = budgetMinRetriesPerSecond;
+        this.budgetMaxTokens = budgetMaxTokens;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelay = hedgeMinDelay;
+    }
+
+    /**
+     * Retries {@code request} on {@code retryable} errors and per-attempt timeouts.
+     */
+    public <T> Mono<T> withRetry(String client, Mono<T> request, Class<? extends Throwable> retryable) {
+        return decorate(client, request, retryable, false);
+    }
+
+    /**
+     * Same as {@link #withRetry}, and hedges each attempt when hedging is enabled.
+     * Only use this for idempotent reads.
+     */
+    public <T> Mono<T> withHedgedRetry(String client, Mono<T> request, Class<? extends Throwable> retryable) {
+        return decorate(client, request, retryable, hedgeEnabled);
+    }
+
+    private <T> Mono<T> decorate(String client, Mono<T> request, Class<? extends Throwable> retryable, boolean hedge) {
+        var state = clients.computeIfAbsent(client, ClientState::new);
+        var attempt = timed(state, guarded(client, request.timeout(attemptTimeout)))
+                .doOnError(BulkheadFullException.class, ex -> state.bulkheadRejected.increment());
+        var hedgedAttempt = hedge ? hedged(state, attempt) : attempt;
+        return Mono.defer(() -> {
+            state.budget.recordRequest();
+            var call = new Call(client);
+            return hedgedAttempt.retryWhen(retrySpec(state, retryable).doBeforeRetry(retrySignal -> call.retries = retrySignal.totalRetries() + 1))
+                    .doOnSuccess(value -> call.stop("success"))
+                    .doOnError(ex -> call.stop("error"))
+                    .doOnCancel(() -> call.stop("cancelled"));
+        });
+    }
+
+    /**
+     * The circuit breaker sees every attempt, including its timeout. Bulkhead rejections never reach
+     * the breaker, so they don't count as downstream failures.
+     */
+    private <T> Mono<T> guarded(String client, Mono<T> attempt) {
+        return attempt
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(client)))
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(client)));
+    }
+
+    private <T> Mono<T> timed(ClientState state, Mono<T> attempt) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return attempt.doOnSuccess(value -> state.latency.record(System.nanoTime() - start));
+        });
+    }
+
+    private <T> Mono<T> hedged(ClientState state, Mono<T> attempt) {
+        return Mono.defer(() -> {
+            var percentile = state.latency.percentile();
+            if (percentile.isEmpty()) {
+                return attempt;
+            }
+            var delay = percentile.get().compareTo(hedgeMinDelay) > 0 ? percentile.get() : hedgeMinDelay;
+            // a failed hedge, e.g. rejected by the busy bulkhead, stays out of the race: only a value or the
+            // first attempt's own error settles it, and the attempt still running is cancelled
+            var hedge = Mono.delay(delay)
+                    .doOnNext(tick -> state.hedges.increment())
+                    .then(attempt)
+                    .onErrorResume(ex -> Mono.never());
+            return Mono.firstWithSignal(attempt, hedge);
+        });
+    }
+
+    private RetryBackoffSpec retrySpec(ClientState state, Class<? extends Throwable> retryable) {
+        return Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(jitter)
+                .filter(ex -> {
+                    if (!retryable.isInstance(ex) && !(ex instanceof TimeoutException)) {
+                        return false;
+                    }
+                    if (!state.budget.tryAcquireRetry()) {
+                        state.budgetExhausted.increment();
+                        return false;
+                    }
+                    return true;
+                })
+                .doBeforeRetry(retrySignal -> state.retries.increment())
+                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> retrySignal.failure());
+    }
+
+    /**
+     * Times one call, all of its attempts included, as {@code movies.client.calls}, tagged with the outcome and the
+     * number of retries it took.
+     */
+    private class Call {
+
+        private final String client;
+        private final Timer.Sample sample = Timer.start(meterRegistry);
+        private volatile long retries;
+        private boolean stopped;
+
+        Call(String client) {
+            this.client = client;
+        }
+
+        synchronized void stop(String outcome) {
+            if (!stopped) {
+                stopped = true;
+                sample.stop(meterRegistry.timer("movies.client.calls",
+                        "client", client, "outcome", outcome, "retries", String.valueOf(retries)));
+            }
+        }
+    }
+
+    private class ClientState {
+
+        private final RetryBudget budget;
+        private final LatencyTracker latency;
+        private final Counter retries;
+        private final Counter hedges;
+        private final Counter budgetExhausted;
+        private final Counter bulkheadRejected;
+
+        ClientState(String client) {
+            this.budget = new RetryBudget(budgetRatio, budgetMinRetriesPerSecond, budgetMaxTokens);
+            this.latency = new LatencyTracker(256, hedgePercentile);
+            this.retries = meterRegistry.counter("movies.client.retries", "client", client);
+            this.hedges = meterRegistry.counter("movies.client.hedges", "client", client);
+            this.budgetExhausted = meterRegistry.counter("movies.client.retry.budget.exhausted", "client", client);
+            this.bulkheadRejected = meterRegistry.counter("movies.client.bulkhead.rejected", "client", client);
+            Gauge.builder("movies.client.retry.budget.tokens", budget, RetryBudget::availableTokens)
+                    .tag("client", client)
+                    .register(meterRegistry);
+        }
+    }
+}
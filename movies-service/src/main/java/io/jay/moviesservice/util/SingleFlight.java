@@ -0,0 +1,43 @@
+package io.jay.moviesservice.util;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent lookups for the same key into one upstream subscription.
+ * Every subscriber that arrives while a lookup is in flight receives its result or its error.
+ * The key is released as soon as the lookup terminates, so nothing is cached beyond that.
+ * Once every subscriber has cancelled, the lookup is cancelled too and its key released.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> lookup) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> share(k, lookup.get())));
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private Mono<V> share(K key, Mono<V> lookup) {
+        var self = new AtomicReference<Mono<V>>();
+        // released before the result reaches any subscriber; doFinally would run only after they have
+        // handled it, and a lookup started from there would be handed the finished result
+        Mono<V> shared = lookup
+                .doOnSuccess(value -> inFlight.remove(key, self.get()))
+                .doOnError(ex -> inFlight.remove(key, self.get()))
+                .doOnCancel(() -> inFlight.remove(key, self.get()))
+                .flux()
+                // counts subscribers, so the cancel of the last one reaches the lookup
+                .replay(1)
+                .refCount()
+                .singleOrEmpty();
+        self.set(shared);
+        return shared;
+    }
+}
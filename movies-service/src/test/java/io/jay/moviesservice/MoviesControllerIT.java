@@ -4,47 +4,100 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.jay.moviesservice.cache.LastKnownReviews;
+import io.jay.moviesservice.cache.MovieInfoETags;
+import io.jay.moviesservice.cache.MovieInfoCache;
 import io.jay.moviesservice.domain.Movie;
 import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.domain.Review;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.test.StepVerifier;
 
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 @AutoConfigureWireMock(port = 8084)
 @TestPropertySource(
         properties = {
                 "restClient.moviesInfoUrl=http://localhost:8084/v1/movieinfos",
-                "restClient.reviewsUrl=http://localhost:8084/v1/reviews"
+                "restClient.reviewsUrl=http://localhost:8084/v1/reviews",
+                "restClient.http2=false",
+                "movies.cache.movieInfo.refreshFromStream=false",
+                "restClient.streamReconnect.minBackoff=100ms"
         })
 public class MoviesControllerIT {
 
+    @LocalServerPort
+    private int port;
+
     @Autowired
     private WebTestClient client;
 
+    @Autowired
+    private MovieInfoCache movieInfoCache;
+
+    @Autowired
+    private LastKnownReviews lastKnownReviews;
+
+    @Autowired
+    private MovieInfoETags movieInfoETags;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     void setup() {
         WireMock.reset();
+        movieInfoCache.invalidateAll();
+        lastKnownReviews.invalidateAll();
+        movieInfoETags.invalidateAll();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
     }
 
     @Test
@@ -74,6 +127,378 @@ public class MoviesControllerIT {
                 });
     }
 
+    @Test
+    void retrieveMovieById_timesStages() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")));
+        var movieInfoFetches = stageCount("movieinfo.fetch");
+        var reviewFetches = stageCount("reviews.fetch");
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        assertThat(stageCount("movieinfo.fetch"), equalTo(movieInfoFetches + 1));
+        assertThat(stageCount("reviews.fetch"), equalTo(reviewFetches + 1));
+    }
+
+    @Test
+    void prometheusScrape() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")));
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // histograms make for a large scrape
+        client
+                .mutate()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build()
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .consumeWith(result -> {
+                    var scrape = result.getResponseBody();
+                    assertThat(scrape, containsString("http_server_requests_seconds_bucket{"));
+                    assertThat(scrape, containsString("uri=\"/v1/movies/{movieId}\""));
+                    assertThat(scrape, containsString("http_client_requests_seconds_bucket{"));
+                    assertThat(scrape, containsString("movies_client_calls_seconds_bucket{client=\"reviews\",outcome=\"success\",retries=\"0\""));
+                    assertThat(scrape, containsString("movies_stage_seconds_bucket{outcome=\"success\",stage=\"movieinfo.fetch\""));
+                });
+    }
+
+    private long stageCount(String stage) {
+        var timer = meterRegistry.find("movies.stage").tags("stage", stage, "outcome", "success").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void retrieveMovieById_withStats() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews/stats?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviewStats.json")));
+
+
+        client
+                .get()
+                .uri("/v1/movies/{id}?stats=true", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.reviewStats.count").isEqualTo(2)
+                .jsonPath("$.reviewStats.mean").isEqualTo(8.5)
+                .jsonPath("$.reviews").doesNotExist();
+
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=123")));
+    }
+
+    @Test
+    void retrieveMovieById_notModified() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews/stats?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviewStats.json")));
+
+        var eTag = client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .returnResult(Movie.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag, notNullValue());
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        // another representation, another ETag
+        client
+                .get()
+                .uri("/v1/movies/{id}?stats=true", "123")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    @Test
+    void retrieveMovieById_revalidatesMovieInfo() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.ETAG, "\"1\"")
+                        .withBodyFile("movieInfo.json")));
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .withHeader(HttpHeaders.IF_NONE_MATCH, WireMock.equalTo("\"1\""))
+                .atPriority(1)
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.NOT_MODIFIED.value())
+                        .withHeader(HttpHeaders.ETAG, "\"1\"")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")));
+
+        for (int i = 0; i < 2; i++) {
+            // every lookup goes to the movie info service
+            movieInfoCache.invalidateAll();
+            client
+                    .get()
+                    .uri("/v1/movies/{id}", "123")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody()
+                    .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins");
+        }
+
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/123"))
+                .withHeader(HttpHeaders.IF_NONE_MATCH, WireMock.equalTo("\"1\"")));
+    }
+
+    @Test
+    void retrieveMovieById_withFields() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123&fields=rating"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[{\"reviewId\": \"1\", \"rating\": 9.0}, {\"reviewId\": \"2\", \"rating\": 8.0}]")));
+
+
+        client
+                .get()
+                .uri("/v1/movies/{id}?fields=movieInfo.name,reviews.rating", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.movieInfo.year").doesNotExist()
+                .jsonPath("$.movieInfo.cast").doesNotExist()
+                .jsonPath("$.reviews.length()").isEqualTo(2)
+                .jsonPath("$.reviews[0].rating").isEqualTo(9.0)
+                .jsonPath("$.reviews[0].comment").doesNotExist()
+                .jsonPath("$.reviewStats").doesNotExist();
+
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/reviews/stats?movieInfoId=123")));
+    }
+
+    @Test
+    void retrieveMovieById_withFields_skipsReviews() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews/stats?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviewStats.json")));
+
+
+        client
+                .get()
+                .uri("/v1/movies/{id}?fields=reviewStats", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo").doesNotExist()
+                .jsonPath("$.reviews").doesNotExist()
+                .jsonPath("$.reviewStats.count").isEqualTo(2);
+
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=123")));
+    }
+
+    @Test
+    void retrieveMovieById_withUnknownField() {
+        client
+                .get()
+                .uri("/v1/movies/{id}?fields=movieInfo.budget", "123")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/movieinfos/123")));
+    }
+
+    @Test
+    void retrieveMovieById_callsBackendsInParallel() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")
+                        .withFixedDelay(1500)));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(1500)));
+
+
+        var start = System.nanoTime();
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assertThat(movie.getMovieInfo().getName(), equalTo("Batman Begins"));
+                    assertThat(movie.getReviews().size(), equalTo(2));
+                });
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(elapsed.toMillis(), lessThan(2500L));
+    }
+
+    @Test
+    void retrieveMovieById_movieInfo_404_cancelsReviews() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withStatus(404)
+                ));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(3000)));
+
+
+        var cancelledBefore = cancelledReviewCalls();
+        var start = System.nanoTime();
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isNotFound()
+                .expectBody(String.class)
+                .isEqualTo("No movie info for id 123");
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(elapsed.toMillis(), lessThan(2000L));
+        // the review call itself was cancelled, rather than left running behind the 404
+        assertThat(cancelledReviewCalls(), equalTo(cancelledBefore + 1));
+    }
+
+    private long cancelledReviewCalls() {
+        return meterRegistry.find("movies.client.calls")
+                .tags("client", "reviews", "outcome", "cancelled")
+                .timers()
+                .stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    @Test
+    void retrieveMovieById_movieInfo_cached() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")));
+
+
+        for (int i = 0; i < 3; i++) {
+            client
+                    .get()
+                    .uri("/v1/movies/{id}", "123")
+                    .exchange()
+                    .expectStatus()
+                    .isOk();
+        }
+
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/123")));
+        WireMock.verify(3, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=123")));
+    }
+
+    @Test
+    void retrieveMovieById_movieInfo_404_cached() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withStatus(404)
+                ));
+
+
+        for (int i = 0; i < 2; i++) {
+            client
+                    .get()
+                    .uri("/v1/movies/{id}", "123")
+                    .exchange()
+                    .expectStatus()
+                    .isNotFound()
+                    .expectBody(String.class)
+                    .isEqualTo("No movie info for id 123");
+        }
+
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/123")));
+    }
+
     @Test
     void retrieveMovieById_movieInfo_404() {
         stubFor(get(urlEqualTo("/v1/movieinfos/123"))
@@ -125,6 +550,84 @@ public class MoviesControllerIT {
                 });
     }
 
+    @Test
+    void retrieveMovieById_reviews_circuitOpen_degradesWithLastKnownReviews() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")));
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        circuitBreakerRegistry.circuitBreaker("reviews").transitionToOpenState();
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assertThat(movie.getMovieInfo().getName(), equalTo("Batman Begins"));
+                    assertThat(movie.getReviews().size(), equalTo(2));
+                    assertThat(movie.isDegraded(), equalTo(true));
+                });
+
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=123")));
+    }
+
+    @Test
+    void retrieveMovieById_reviews_circuitOpen_degradesWithoutReviews() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+
+        circuitBreakerRegistry.circuitBreaker("reviews").transitionToOpenState();
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assertThat(movie.getMovieInfo().getName(), equalTo("Batman Begins"));
+                    assertThat(movie.getReviews().size(), equalTo(0));
+                    assertThat(movie.isDegraded(), equalTo(true));
+                });
+
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=123")));
+    }
+
+    @Test
+    void retrieveMovieById_movieInfo_circuitOpen() {
+        circuitBreakerRegistry.circuitBreaker("moviesInfo").transitionToOpenState();
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/movieinfos/123")));
+    }
+
     @Test
     void retrieveMovieById_movieInfo_500() {
         stubFor(get(urlEqualTo("/v1/movieinfos/123"))
@@ -168,6 +671,30 @@ public class MoviesControllerIT {
         WireMock.verify(4, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=123")));
     }
 
+    @Test
+    void retrieveMovieById_reviews_500_problem() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_PROBLEM_JSON_VALUE)
+                        .withBody("{\"type\": \"about:blank\", \"title\": \"Internal Server Error\", \"status\": 500}")));
+
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .is5xxServerError()
+                .expectBody(String.class)
+                .isEqualTo("Internal Server Error");
+    }
+
     @Test
     void retrieveMovieById_reviews_retry() {
         stubFor(get(urlEqualTo("/v1/movieinfos/123"))
@@ -188,6 +715,130 @@ public class MoviesControllerIT {
         WireMock.verify(4, getRequestedFor(urlEqualTo("/v1/movieinfos/123")));
     }
 
+    @Test
+    void retrieveMovieById_gzip() throws Exception {
+        var reviews = IntStream.range(0, 50)
+                .mapToObj(i -> new Review("review-" + i, 123L, "A long enough comment to make the movie worth compressing", 8.0))
+                .collect(Collectors.toList());
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(new ObjectMapper().writeValueAsString(reviews))));
+
+        // the web test client decompresses transparently and drops Content-Encoding
+        var httpClient = HttpClient.newHttpClient();
+        var movie = httpClient.send(gzipRequest("/v1/movies/123"), BodyHandlers.ofByteArray());
+        assertThat(movie.statusCode(), equalTo(200));
+        assertThat(movie.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null), equalTo("gzip"));
+        var body = new ObjectMapper().registerModule(new JavaTimeModule())
+                .readValue(new GZIPInputStream(new ByteArrayInputStream(movie.body())), Movie.class);
+        assertThat(body.getReviews().size(), equalTo(50));
+
+        // too small to be worth it
+        var movieInfo = httpClient.send(gzipRequest("/v1/movies/123?fields=movieInfo"), BodyHandlers.ofByteArray());
+        assertThat(movieInfo.statusCode(), equalTo(200));
+        assertThat(movieInfo.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isPresent(), equalTo(false));
+    }
+
+    private HttpRequest gzipRequest(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+    }
+
+    @Test
+    void retrieveMoviesByIds() {
+        stubFor(post(urlEqualTo("/v1/movieinfos/batch"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfos.json")));
+
+        stubFor(post(urlEqualTo("/v1/reviews/batch"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("batchReviews.json")));
+
+
+        client
+                .post()
+                .uri("/v1/movies/batch")
+                .bodyValue(List.of("456", "123", "789", "123"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Movie.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var movies = listEntityExchangeResult.getResponseBody();
+                    assertThat(movies.size(), equalTo(2));
+                    assertThat(movies.get(0).getMovieInfo().getName(), equalTo("The Dark Knight"));
+                    assertThat(movies.get(0).getReviews().size(), equalTo(1));
+                    assertThat(movies.get(1).getMovieInfo().getName(), equalTo("Batman Begins"));
+                    assertThat(movies.get(1).getReviews().size(), equalTo(2));
+                });
+
+        WireMock.verify(1, postRequestedFor(urlEqualTo("/v1/movieinfos/batch"))
+                .withRequestBody(equalToJson("[\"456\", \"123\", \"789\"]")));
+        WireMock.verify(1, postRequestedFor(urlEqualTo("/v1/reviews/batch")));
+    }
+
+    @Test
+    void retrieveMoviesByIds_sendsOnlyNumericIdsForReviews() {
+        stubFor(post(urlEqualTo("/v1/movieinfos/batch"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfos.json")));
+
+        stubFor(post(urlEqualTo("/v1/reviews/batch"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("batchReviews.json")));
+
+
+        client
+                .post()
+                .uri("/v1/movies/batch")
+                .bodyValue(List.of("456", "abc", "123"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Movie.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var movies = listEntityExchangeResult.getResponseBody();
+                    assertThat(movies.size(), equalTo(2));
+                    assertThat(movies.get(0).getReviews().size(), equalTo(1));
+                    assertThat(movies.get(1).getReviews().size(), equalTo(2));
+                });
+
+        WireMock.verify(1, postRequestedFor(urlEqualTo("/v1/movieinfos/batch"))
+                .withRequestBody(equalToJson("[\"456\", \"abc\", \"123\"]")));
+        WireMock.verify(1, postRequestedFor(urlEqualTo("/v1/reviews/batch"))
+                .withRequestBody(equalToJson("[\"456\", \"123\"]")));
+    }
+
+    @Test
+    void retrieveMoviesByIds_withoutNumericIdsSkipsReviews() {
+        stubFor(post(urlEqualTo("/v1/movieinfos/batch"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[]")));
+
+        client
+                .post()
+                .uri("/v1/movies/batch")
+                .bodyValue(List.of("abc"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Movie.class)
+                .hasSize(0);
+
+        WireMock.verify(0, postRequestedFor(urlEqualTo("/v1/reviews/batch")));
+    }
+
     @Test
     void retrieveMovieInfoStream() throws JsonProcessingException {
         MovieInfo movieInfo = new MovieInfo("999", "A New Hope", 2012, List.of("Actor1"), LocalDate.parse("2012-01-01"));
@@ -216,4 +867,40 @@ public class MoviesControllerIT {
                 })
                 .thenCancel();
     }
+
+    @Test
+    void retrieveMovieInfoStream_resumesAfterLastEventId() throws JsonProcessingException {
+        var objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        var firstMovieInfo = new MovieInfo("999", "A New Hope", 1977, List.of("Actor1"), LocalDate.parse("1977-05-25"));
+        var secondMovieInfo = new MovieInfo("1000", "The Empire Strikes Back", 1980, List.of("Actor1"), LocalDate.parse("1980-05-21"));
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .withHeader("Last-Event-ID", absent())
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                        .withBody("id:7\ndata:" + objectMapper.writeValueAsString(firstMovieInfo) + "\n\n")));
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .withHeader("Last-Event-ID", WireMock.equalTo("7"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                        .withBody("id:8\ndata:" + objectMapper.writeValueAsString(secondMovieInfo) + "\n\n")));
+
+
+        var streamFlux = client
+                .get()
+                .uri("/v1/movies/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+
+        StepVerifier.create(streamFlux)
+                .assertNext(m -> assertThat(m.getName(), equalTo("A New Hope")))
+                .assertNext(m -> assertThat(m.getName(), equalTo("The Empire Strikes Back")))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
 }
@@ -0,0 +1,122 @@
+package io.jay.moviesservice;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import io.jay.moviesservice.cache.MovieInfoCache;
+import io.jay.moviesservice.cache.MovieInfoETags;
+import io.jay.moviesservice.domain.Movie;
+import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.domain.Review;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 8085)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:8085/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:8085/v1/reviews",
+                "restClient.http2=false",
+                "restClient.wireFormat=SMILE",
+                "movies.cache.movieInfo.refreshFromStream=false"
+        })
+public class MoviesControllerSmileIT {
+
+    private static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MovieInfoCache movieInfoCache;
+
+    @Autowired
+    private MovieInfoETags movieInfoETags;
+
+    @BeforeEach
+    void setup() {
+        WireMock.reset();
+        movieInfoCache.invalidateAll();
+        movieInfoETags.invalidateAll();
+    }
+
+    @Test
+    void retrieveMovieById_readsSmile() throws JsonProcessingException {
+        var movieInfo = new MovieInfo("123", "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        var reviews = List.of(new Review("1", 123L, "Awesome", 9.0), new Review("2", 123L, "Great", 8.0));
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_SMILE)
+                        .withBody(smileMapper.writeValueAsBytes(movieInfo))));
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_SMILE)
+                        .withBody(smileMapper.writeValueAsBytes(reviews))));
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON)
+                .expectBody(Movie.class)
+                .consumeWith(result -> {
+                    var movie = result.getResponseBody();
+                    assertThat(movie.getMovieInfo().getName(), equalTo("Batman Begins"));
+                    assertThat(movie.getMovieInfo().getRelease_date(), equalTo(LocalDate.parse("2005-06-15")));
+                    assertThat(movie.getReviews().size(), equalTo(2));
+                });
+
+        WireMock.verify(getRequestedFor(urlEqualTo("/v1/movieinfos/123"))
+                .withHeader(HttpHeaders.ACCEPT, WireMock.containing(APPLICATION_SMILE)));
+        WireMock.verify(getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .withHeader(HttpHeaders.ACCEPT, WireMock.containing(APPLICATION_SMILE)));
+    }
+
+    @Test
+    void retrieveMovieById_fallsBackToJson() {
+        stubFor(get(urlEqualTo("/v1/movieinfos/123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieInfo.json")));
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=123"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("reviews.json")));
+
+        client
+                .get()
+                .uri("/v1/movies/{id}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(result -> assertThat(result.getResponseBody().getReviews().size(), equalTo(2)));
+    }
+}
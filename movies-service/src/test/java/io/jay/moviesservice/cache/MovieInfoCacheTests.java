@@ -0,0 +1,127 @@
+package io.jay.moviesservice.cache;
+
+import io.jay.moviesservice.client.MoviesInfoRestClient;
+import io.jay.moviesservice.domain.MovieInfo;
+import io.jay.moviesservice.exception.MoviesInfoClientException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoCacheTests {
+
+    private MoviesInfoRestClient moviesInfoRestClient;
+    private MovieInfoCache movieInfoCache;
+
+    @BeforeEach
+    void setup() {
+        moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+        movieInfoCache = new MovieInfoCache(moviesInfoRestClient, new SimpleMeterRegistry(),
+                true, 100, Duration.ofMinutes(10), Duration.ofSeconds(5), false);
+    }
+
+    @Test
+    void retrieveMovieInfo_concurrentMissesShareOneRequest() {
+        var movieInfo = new MovieInfo("1", "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        when(moviesInfoRestClient.retrieveMovieInfo("1"))
+                .thenReturn(Mono.delay(Duration.ofMillis(100)).thenReturn(movieInfo));
+
+
+        StepVerifier.create(Mono.zip(movieInfoCache.retrieveMovieInfo("1"), movieInfoCache.retrieveMovieInfo("1")))
+                .assertNext(tuple -> {
+                    assertThat(tuple.getT1().getName(), equalTo("Batman Begins"));
+                    assertThat(tuple.getT2().getName(), equalTo("Batman Begins"));
+                })
+                .verifyComplete();
+
+        verify(moviesInfoRestClient, times(1)).retrieveMovieInfo("1");
+    }
+
+    @Test
+    void retrieveMovieInfo_notFoundIsCached() {
+        when(moviesInfoRestClient.retrieveMovieInfo("1"))
+                .thenReturn(Mono.error(new MoviesInfoClientException("No movie info for id 1", 404)));
+
+
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("1"))
+                .verifyError(MoviesInfoClientException.class);
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("1"))
+                .verifyErrorMessage("No movie info for id 1");
+
+        verify(moviesInfoRestClient, times(1)).retrieveMovieInfo("1");
+    }
+
+    @Test
+    void retrieveMovieInfo_serverErrorIsNotCached() {
+        when(moviesInfoRestClient.retrieveMovieInfo("1"))
+                .thenReturn(Mono.error(new MoviesInfoClientException("Bad request", 400)));
+
+
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("1"))
+                .verifyErrorMessage("Bad request");
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("1"))
+                .verifyErrorMessage("Bad request");
+
+        verify(moviesInfoRestClient, times(2)).retrieveMovieInfo("1");
+    }
+
+    @Test
+    void refresh_replacesCachedEntry() {
+        var movieInfo = new MovieInfo("1", "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        var updatedMovieInfo = new MovieInfo("1", "Batman Begins (Remastered)", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        when(moviesInfoRestClient.retrieveMovieInfo("1"))
+                .thenReturn(Mono.just(movieInfo));
+
+
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("1"))
+                .expectNextCount(1)
+                .verifyComplete();
+        movieInfoCache.refresh(updatedMovieInfo);
+
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("1"))
+                .assertNext(m -> assertThat(m.getName(), equalTo("Batman Begins (Remastered)")))
+                .verifyComplete();
+        verify(moviesInfoRestClient, times(1)).retrieveMovieInfo("1");
+    }
+
+    @Test
+    void deleteEvent_evictsCachedEntry() {
+        var movieInfo = new MovieInfo("1", "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        var stream = Sinks.many().multicast().<ServerSentEvent<MovieInfo>>directBestEffort();
+        when(moviesInfoRestClient.retrieveMovieInfoStream(null))
+                .thenReturn(stream.asFlux());
+        when(moviesInfoRestClient.retrieveMovieInfo("1"))
+                .thenReturn(Mono.just(movieInfo))
+                .thenReturn(Mono.error(new MoviesInfoClientException("No movie info for id 1", 404)));
+        movieInfoCache = new MovieInfoCache(moviesInfoRestClient, new SimpleMeterRegistry(),
+                true, 100, Duration.ofMinutes(10), Duration.ofSeconds(5), true);
+        movieInfoCache.subscribeToMovieInfoStream();
+
+
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("1"))
+                .expectNextCount(1)
+                .verifyComplete();
+        var deleted = new MovieInfo();
+        deleted.setMovieInfoId("1");
+        stream.tryEmitNext(ServerSentEvent.builder(deleted).id("2").event(MoviesInfoRestClient.DELETE_EVENT).build());
+
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("1"))
+                .verifyErrorMessage("No movie info for id 1");
+        verify(moviesInfoRestClient, times(2)).retrieveMovieInfo("1");
+        movieInfoCache.unsubscribeFromMovieInfoStream();
+    }
+}
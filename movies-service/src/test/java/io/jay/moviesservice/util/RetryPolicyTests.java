@@ -0,0 +1,147 @@
+package io.jay.moviesservice.util;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.jay.moviesservice.exception.ReviewsServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class RetryPolicyTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+
+    private RetryPolicy policy(double budgetMaxTokens, boolean hedgeEnabled) {
+        return new RetryPolicy(meterRegistry, circuitBreakerRegistry, BulkheadRegistry.ofDefaults(),
+                3, Duration.ofMillis(1), Duration.ofMillis(10), 0.5, Duration.ofMillis(200),
+                0.2, 0, budgetMaxTokens, hedgeEnabled, 0.95, Duration.ofMillis(10));
+    }
+
+    @Test
+    void withRetry_retriesRetryableErrorsUntilSuccess() {
+        var attempts = new AtomicInteger();
+        var request = Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.<String>error(new ReviewsServerException("Server Exception"))
+                : Mono.just("review"));
+
+        StepVerifier.create(policy(50, false).withRetry("reviews", request, ReviewsServerException.class))
+                .expectNext("review")
+                .verifyComplete();
+
+        assertThat(attempts.get(), equalTo(3));
+        assertThat(meterRegistry.counter("movies.client.retries", "client", "reviews").count(), equalTo(2.0));
+        assertThat(meterRegistry.timer("movies.client.calls", "client", "reviews", "outcome", "success", "retries", "2").count(),
+                equalTo(1L));
+    }
+
+    @Test
+    void withRetry_doesNotRetryOtherErrors() {
+        var attempts = new AtomicInteger();
+        var request = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new IllegalArgumentException("Bad Request"));
+        });
+
+        StepVerifier.create(policy(50, false).withRetry("reviews", request, ReviewsServerException.class))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        assertThat(attempts.get(), equalTo(1));
+        assertThat(meterRegistry.timer("movies.client.calls", "client", "reviews", "outcome", "error", "retries", "0").count(),
+                equalTo(1L));
+    }
+
+    @Test
+    void withRetry_stopsRetryingWhenBudgetIsExhausted() {
+        var attempts = new AtomicInteger();
+        var request = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new ReviewsServerException("Server Exception"));
+        });
+
+        StepVerifier.create(policy(1, false).withRetry("reviews", request, ReviewsServerException.class))
+                .expectError(ReviewsServerException.class)
+                .verify();
+
+        assertThat(attempts.get(), equalTo(2));
+        assertThat(meterRegistry.counter("movies.client.retry.budget.exhausted", "client", "reviews").count(), equalTo(1.0));
+    }
+
+    @Test
+    void withRetry_timesOutEachAttempt() {
+        var attempts = new AtomicInteger();
+        var request = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>never();
+        });
+
+        StepVerifier.create(policy(50, false).withRetry("reviews", request, ReviewsServerException.class))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(attempts.get(), equalTo(4));
+    }
+
+    @Test
+    void withRetry_failsFastWhenCircuitIsOpen() {
+        circuitBreakerRegistry.circuitBreaker("reviews").transitionToOpenState();
+        var attempts = new AtomicInteger();
+        var request = Mono.fromCallable(() -> "review-" + attempts.incrementAndGet());
+
+        StepVerifier.create(policy(50, false).withRetry("reviews", request, ReviewsServerException.class))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+
+        assertThat(attempts.get(), equalTo(0));
+    }
+
+    @Test
+    void withHedgedRetry_sendsHedgeWhenFirstAttemptIsSlow() {
+        var policy = policy(50, true);
+        for (int i = 0; i < 20; i++) {
+            policy.withHedgedRetry("reviews", Mono.just("warm-up"), ReviewsServerException.class).block();
+        }
+        var attempts = new AtomicInteger();
+        var request = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.just("slow").delayElement(Duration.ofMillis(150))
+                : Mono.just("fast"));
+
+        StepVerifier.create(policy.withHedgedRetry("reviews", request, ReviewsServerException.class))
+                .expectNext("fast")
+                .verifyComplete();
+
+        assertThat(attempts.get(), equalTo(2));
+        assertThat(meterRegistry.counter("movies.client.hedges", "client", "reviews").count(), equalTo(1.0));
+    }
+
+    @Test
+    void withHedgedRetry_failedHedgeDoesNotFailSlowFirstAttempt() {
+        var policy = policy(50, true);
+        for (int i = 0; i < 20; i++) {
+            policy.withHedgedRetry("reviews", Mono.just("warm-up"), ReviewsServerException.class).block();
+        }
+        var attempts = new AtomicInteger();
+        var request = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.just("slow").delayElement(Duration.ofMillis(150))
+                : Mono.<String>error(BulkheadFullException.createBulkheadFullException(Bulkhead.ofDefaults("reviews"))));
+
+        StepVerifier.create(policy.withHedgedRetry("reviews", request, ReviewsServerException.class))
+                .expectNext("slow")
+                .verifyComplete();
+
+        assertThat(attempts.get(), equalTo(2));
+        assertThat(meterRegistry.counter("movies.client.hedges", "client", "reviews").count(), equalTo(1.0));
+    }
+}
@@ -0,0 +1,101 @@
+package io.jay.moviesservice.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class SingleFlightTests {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void execute_concurrentSubscribersShareOneLookup() {
+        var subscriptions = new AtomicInteger();
+        var upstream = Sinks.<String>one();
+        var lookup = Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return upstream.asMono();
+        });
+
+        var first = singleFlight.execute("1", () -> lookup);
+        var second = singleFlight.execute("1", () -> lookup);
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> upstream.tryEmitValue("movie"))
+                .assertNext(tuple -> {
+                    assertThat(tuple.getT1(), equalTo("movie"));
+                    assertThat(tuple.getT2(), equalTo("movie"));
+                })
+                .verifyComplete();
+
+        assertThat(subscriptions.get(), equalTo(1));
+        assertThat(singleFlight.inFlight(), equalTo(0));
+    }
+
+    @Test
+    void execute_errorPropagatesToEveryWaiter() {
+        var upstream = Sinks.<String>one();
+
+        var first = singleFlight.execute("1", upstream::asMono);
+        var second = singleFlight.execute("1", upstream::asMono);
+
+        StepVerifier.create(Mono.zip(first.materialize(), second.materialize()))
+                .then(() -> upstream.tryEmitError(new IllegalStateException("Service Unavailable")))
+                .assertNext(tuple -> {
+                    assertThat(tuple.getT1().getThrowable().getMessage(), equalTo("Service Unavailable"));
+                    assertThat(tuple.getT2().getThrowable().getMessage(), equalTo("Service Unavailable"));
+                })
+                .verifyComplete();
+
+        assertThat(singleFlight.inFlight(), equalTo(0));
+    }
+
+    @Test
+    void execute_releasesKeyOnceLookupCompletes() {
+        var subscriptions = new AtomicInteger();
+        var lookup = Mono.fromCallable(() -> "movie-" + subscriptions.incrementAndGet());
+
+        StepVerifier.create(singleFlight.execute("1", () -> lookup))
+                .expectNext("movie-1")
+                .verifyComplete();
+        StepVerifier.create(singleFlight.execute("1", () -> lookup))
+                .expectNext("movie-2")
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_lookupStartedOnResultIsNotCoalescedWithFinishedOne() {
+        var subscriptions = new AtomicInteger();
+        var lookup = Mono.fromCallable(() -> "movie-" + subscriptions.incrementAndGet());
+
+        StepVerifier.create(singleFlight.execute("1", () -> lookup)
+                        .flatMap(first -> singleFlight.execute("1", () -> lookup)))
+                .expectNext("movie-2")
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_cancelsLookupOnceEverySubscriberCancelled() {
+        var cancelled = new AtomicBoolean();
+        var lookup = Mono.<String>never()
+                .doOnCancel(() -> cancelled.set(true));
+
+        var first = singleFlight.execute("1", () -> lookup).subscribe();
+        var second = singleFlight.execute("1", () -> lookup).subscribe();
+        assertThat(singleFlight.inFlight(), equalTo(1));
+
+        first.dispose();
+        assertThat(cancelled.get(), equalTo(false));
+        second.dispose();
+
+        assertThat(cancelled.get(), equalTo(true));
+        assertThat(singleFlight.inFlight(), equalTo(0));
+    }
+}